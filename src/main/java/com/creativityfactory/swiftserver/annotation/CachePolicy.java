@@ -0,0 +1,54 @@
+package com.creativityfactory.swiftserver.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Sets how the responses of the generated REST API of a model are cached, by the clients with the
+ * Cache-Control header and by the server-side cache of the responses. A model without this annotation is
+ * cached publicly for 36000 seconds.</p>
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * // reference data changing rarely
+ * @Rest
+ * @FromDataSource
+ * @CachePolicy(maxAge = 86400, staleWhileRevalidate = 3600)
+ * public class Country {
+ *     ...
+ * }
+ * // hot transactional data which must never be cached
+ * @Rest
+ * @FromDataSource
+ * @CachePolicy(noStore = true)
+ * public class Payment {
+ *     ...
+ * }
+ * }</pre>
+ * <p>The policy is read once when the REST API is generated.</p>
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CachePolicy {
+    /**
+     * The number of seconds a response stays fresh, for the clients and for the server-side cache.
+     */
+    int maxAge() default 36000;
+
+    /**
+     * The number of seconds after the expiration during which a stale response can still be served while it
+     * is refreshed, zero disables it.
+     */
+    int staleWhileRevalidate() default 0;
+
+    /**
+     * Whether the responses are specific to a user, they are then cached by the clients only.
+     */
+    boolean privateCache() default false;
+
+    /**
+     * Whether the responses must not be cached at all, by the clients or by the server.
+     */
+    boolean noStore() default false;
+}
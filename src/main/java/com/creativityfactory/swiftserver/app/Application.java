@@ -1,18 +1,32 @@
 package com.creativityfactory.swiftserver.app;
 
 import com.creativityfactory.swiftserver.annotation.*;
+import com.creativityfactory.swiftserver.cache.BackgroundRefresher;
+import com.creativityfactory.swiftserver.cache.ModelVersion;
+import com.creativityfactory.swiftserver.cache.ResponseCache;
+import com.creativityfactory.swiftserver.cache.RouteCachePolicy;
+import com.creativityfactory.swiftserver.cache.VersionRegistry;
 import com.creativityfactory.swiftserver.middleware.*;
 import com.creativityfactory.swiftserver.middleware.rest.*;
 import com.creativityfactory.swiftserver.request.HttpRequest;
 import com.creativityfactory.swiftserver.request.Request;
 import com.google.gson.Gson;
+import com.creativityfactory.swiftserver.persistence.MappedDataSource;
 import com.creativityfactory.swiftserver.persistence.Persistence;
 import com.creativityfactory.swiftserver.persistence.SingletonDataSource;
+import com.creativityfactory.swiftserver.persistence.StorageEngine;
+import com.creativityfactory.swiftserver.persistence.WriteOptions;
+import com.creativityfactory.swiftserver.response.Compression;
 import com.creativityfactory.swiftserver.response.HttpResponse;
+import com.creativityfactory.swiftserver.response.NoBodyResponse;
 import com.creativityfactory.swiftserver.response.Response;
+import com.creativityfactory.swiftserver.route.HttpMethod;
+import com.creativityfactory.swiftserver.route.ParamConverters;
+import com.creativityfactory.swiftserver.route.RouteCache;
+import com.creativityfactory.swiftserver.route.RouteMatch;
+import com.creativityfactory.swiftserver.route.RouteTable;
 import com.creativityfactory.swiftserver.utils.FieldUtils;
 import com.creativityfactory.swiftserver.utils.IdUtils;
-import com.creativityfactory.swiftserver.utils.RouteUtils;
 import com.creativityfactory.swiftserver.request.*;
 import jakarta.servlet.ServletConfig;
 import jakarta.servlet.ServletException;
@@ -26,6 +40,7 @@ import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.util.*;
+import java.util.zip.Deflater;
 
 import static org.reflections.scanners.Scanners.SubTypes;
 import static org.reflections.scanners.Scanners.TypesAnnotated;
@@ -51,12 +66,19 @@ import static org.reflections.scanners.Scanners.TypesAnnotated;
  * }</pre>
  */
 public class Application extends HttpServlet {
-    private Map<String, List<HttpRequestHandler>> urlGetMap;
-    private Map<String, List<HttpRequestHandler>> urlPostMap;
-    private Map<String, List<HttpRequestHandler>> urlPutMap;
-    private Map<String, List<HttpRequestHandler>> urlDeleteMap;
-    private Map<String, List<HttpRequestHandler>> urlPatchMap;
-    private Map<String, Date> cacheableResources;
+    private static final int DEFAULT_ROUTE_CACHE_SIZE = 1024;
+    private static final long DEFAULT_MAX_BODY_SIZE = 10L * 1024 * 1024;
+    private static final int DEFAULT_COMPRESSION_MIN_SIZE = 1024;
+    private static final long DEFAULT_RESPONSE_CACHE_SIZE = 16L * 1024 * 1024;
+    private static final int DEFAULT_REFRESH_THREADS = 2;
+
+    private Settings settings;
+    private RouteTable routeTable;
+    private long maxBodySize;
+    private Compression compression;
+    private VersionRegistry versions;
+    private ResponseCache responseCache;
+    private BackgroundRefresher refresher;
     private Gson gson;
 
     @Override
@@ -79,65 +101,134 @@ public class Application extends HttpServlet {
      * @throws Exception
      */
     private void initiator() throws Exception {
-        urlGetMap = new LinkedHashMap<>();
-        urlPostMap = new LinkedHashMap<>();
-        urlPutMap = new LinkedHashMap<>();
-        urlDeleteMap = new LinkedHashMap<>();
-        urlPatchMap = new LinkedHashMap<>();
-        cacheableResources = new HashMap<>();
+        settings = new Settings(getServletConfig());
+        routeTable = new RouteTable();
+        versions = new VersionRegistry();
         gson = new Gson();
 
         // run the code of the client
         execute();
+        // no route can be mapped after this point
+        routeTable.setCacheSize(settings.getInt(Settings.ROUTE_CACHE_SIZE, DEFAULT_ROUTE_CACHE_SIZE));
+        maxBodySize = settings.getLong(Settings.MAX_BODY_SIZE, DEFAULT_MAX_BODY_SIZE);
+        String compressionTypes = settings.get(Settings.COMPRESSION_TYPES, null);
+        compression = new Compression(
+                settings.getBoolean(Settings.COMPRESSION, true),
+                settings.getInt(Settings.COMPRESSION_MIN_SIZE, DEFAULT_COMPRESSION_MIN_SIZE),
+                (compressionTypes == null)? Compression.DEFAULT_TYPES: Compression.parseTypes(compressionTypes),
+                settings.getInt(Settings.COMPRESSION_LEVEL, Deflater.DEFAULT_COMPRESSION));
+        routeTable.freeze();
     }
 
     /**
-     * <p>This method is a central method which intercept every incoming http request and look
-     * for its handlers.</p>
+     * Returns the settings of this application, they can be changed inside {@link #execute()}.
+     * @return the settings of this application.
+     */
+    protected Settings settings() {
+        return settings;
+    }
+
+    /**
+     * Returns the cache of the resolved routes, its hits and misses show whether it helps for the traffic
+     * of this application.
+     * @return the cache of the resolved routes.
+     */
+    protected RouteCache routeCache() {
+        return routeTable.cache();
+    }
+
+    /**
+     * Returns the server-side cache of the responses of the generated GET routes, it is created the first time
+     * a REST API is generated so its size can be set inside {@link #execute()} before.
+     * @return the cache of the responses.
+     */
+    protected ResponseCache responseCache() {
+        if (responseCache == null) {
+            responseCache = new ResponseCache(settings.getLong(Settings.RESPONSE_CACHE_SIZE, DEFAULT_RESPONSE_CACHE_SIZE));
+        }
+
+        return responseCache;
+    }
+
+    /**
+     * Returns the refresher of the stale bodies of the server-side cache, it is created the first time a REST API
+     * is generated, like the cache of the responses.
+     * @return the refresher of the stale bodies.
+     */
+    protected BackgroundRefresher refresher() {
+        if (refresher == null) {
+            refresher = new BackgroundRefresher(settings.getInt(Settings.REFRESH_THREADS, DEFAULT_REFRESH_THREADS));
+        }
+
+        return refresher;
+    }
+
+    /**
+     * Returns the storage engine of the default data source chosen by the settings.
+     * @return the storage engine, or null for the default one.
+     */
+    protected StorageEngine storageEngine() {
+        String engine = settings.get(Settings.STORAGE_ENGINE, "json");
+        if (engine.equalsIgnoreCase("json")) return null;
+        if (engine.equalsIgnoreCase("mapped")) return MappedDataSource.getInstance();
+
+        throw new IllegalArgumentException("Unknown storage engine " + engine + " for " + Settings.STORAGE_ENGINE);
+    }
+
+    @Override
+    public void destroy() {
+        if (refresher != null) refresher.shutdown();
+        super.destroy();
+    }
+
+    /**
+     * <p>This method is a central method which runs the handlers of the route matched by an incoming
+     * http request.</p>
+     *
+     * <p>The middlewares of every endpoint are composed into a single handler when the routes are frozen,
+     * where they are executed in the given order from the client code.</p>
      *
-     * <p>It's responsible for managing middlewares for every endpoint where it starts executing them
-     * in the given order from the client code inside a loop.</p>
-     * @param mappedMethods
+     * <p>The body of the request is read only if a middleware asks for it. A request announcing a body larger
+     * than the maximum body size is rejected with the status 413 before running any middleware.</p>
+     * @param match The route matched by this request with its params
      * @param request
      * @param response
      * @throws IOException
      */
-    protected void process(Map<String, List<HttpRequestHandler>> mappedMethods, HttpServletRequest request, HttpServletResponse response) throws IOException {
-        // get the path of this request to call the matched method mapped to this path
-        String path = request.getRequestURI().replaceFirst(request.getContextPath(), "").replaceFirst(request.getServletPath(), "");
-        for (Map.Entry<String, List<HttpRequestHandler>> set: mappedMethods.entrySet()) {
-            if (RouteUtils.isUrlPatternMatched(set.getKey(), path)) {
-                request.setAttribute("pattern", set.getKey());
-                try {
-                    // creating our custom request & response
-                    Request req = new HttpRequest(request);
-                    Response res = new HttpResponse(request, response);
-
-                    // calling the mapped methods with this request
-                    int i = 0;
-                    List<HttpRequestHandler> handlerList = set.getValue();
-                    do {
-                        // default value
-                        req.next(false);
-
-                        HttpRequestHandler handler = handlerList.get(i++);
-                        handler.method(req, res);
-                    } while (req.shouldContinue() && i < handlerList.size());
-
-                } catch (Exception exception) {
-                    System.out.println("[Process err]: " + exception.getMessage());
-                    exception.printStackTrace();
-                    try {
-                        response.sendError(response.SC_INTERNAL_SERVER_ERROR);
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
-                    }
-                }
-                return;
-            }
+    protected void process(RouteMatch match, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (request.getContentLengthLong() > maxBodySize) {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            return;
         }
 
-        response.sendError(response.SC_NOT_FOUND);
+        try {
+            // creating our custom request & response
+            Request req = new HttpRequest(request, match, maxBodySize);
+            HttpResponse res = new HttpResponse(request, response, compression);
+
+            // calling the composed middlewares of this route
+            boolean completed = false;
+            try {
+                match.route().handler().method(req, res);
+                completed = true;
+            } finally {
+                // the body of a failed handler is discarded, its buffers are released either way
+                if (!completed) res.abort();
+            }
+            res.end();
+        } catch (BodyTooLargeException exception) {
+            if (!response.isCommitted()) response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        } catch (Exception exception) {
+            System.out.println("[Process err]: " + exception.getMessage());
+            exception.printStackTrace();
+            // a response whose body has started streaming can not be replaced by an error
+            if (response.isCommitted()) return;
+            try {
+                response.sendError(response.SC_INTERNAL_SERVER_ERROR);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
     }
 
     // for carrying and executing the code of the client
@@ -189,39 +280,44 @@ public class Application extends HttpServlet {
      * @param model The model which the client want to have a rest api on it.
      */
     protected void createRest(Class<?> model) throws InstantiationException, IllegalAccessException, IOException {
-        HttpRequestHandler setUpModel = new SetUpModel(model, this.gson);
-        HttpRequestHandler setDataSource = new SetDataSource();
-        HttpRequestHandler idConverter = new IdConverter();
+        // the default data source is stored and its writes are batched with the settings of this application
+        SingletonDataSource.configure(storageEngine(), new WriteOptions(
+                settings.getInt(Settings.WRITE_BATCH_SIZE, WriteOptions.DEFAULT.maxBatchSize()),
+                settings.getLong(Settings.WRITE_BATCH_WINDOW, WriteOptions.DEFAULT.batchWindowMicros()),
+                settings.getBoolean(Settings.WRITE_FSYNC, WriteOptions.DEFAULT.fsync())));
+        // the model and its persistence object are resolved once and bound to every request of the routes
+        HttpRequestHandler setUpModel = new SetUpModel(model, SingletonDataSource.getInstance(model));
+        HttpRequestHandler idConverter = new IdConverter(model);
         HttpRequestHandler contentTypeValidator = new ContentTypeValidation();
-        HttpRequestHandler objectMapper = new ObjectMapper();
+        HttpRequestHandler objectMapper = new ObjectMapper(model, this.gson);
         HttpRequestHandler receivedDataValidator = new ReceivedDataValidation();
-        HttpRequestHandler cacheableResource = new CacheResource(cacheableResources);
-        HttpRequestHandler updateCacheableResource = new UpdateCacheableResource(cacheableResources);
+        ModelVersion version = versions.of(model);
+        RouteCachePolicy cachePolicy = RouteCachePolicy.of(model);
+        HttpRequestHandler cacheableResource = new CacheResource(version, cachePolicy);
+        HttpRequestHandler updateCacheableResource = new UpdateCacheableResource(version);
         // Plural the name of the model
         String path = "/" + English.plural(model.getSimpleName().toLowerCase()) + "/";
+        // the id placeholder is typed by the id of the model, so a malformed id does not match the route
+        String idType = ParamConverters.typeOf(IdUtils.getIdTypeFromModel(model));
+        String idPath = path + ((idType == null)? ":id": ":id<" + idType + ">");
         System.out.println("Path: " + path);
         // TODO: loosely coupling between classes [Almost DONE]
-        // cacheable
-        Date d = new Date();
-        System.out.println("Created at: " + d);
-        cacheableResources.put(model.getName(), d);
+        // cacheable: the version clock of the model starts now
+        System.out.println("Created at: " + new Date(version.lastModified()));
 
         // get method: [DONE]
         get(path, setUpModel);
-        get(path, setDataSource);
         get(path, cacheableResource);
-        get(path, new Get());
+        get(path, new CachedResponse(responseCache(), version, cachePolicy, refresher(), new CoalescingHandler(version, new Get())));
 
         // get by id method [Almost DONE]
-        get(path + ":id", setUpModel);
-        get(path + ":id", setDataSource);
-        get(path + ":id", idConverter);
-        get(path + ":id", cacheableResource);
-        get(path + ":id", new GetById());
+        get(idPath, setUpModel);
+        get(idPath, idConverter);
+        get(idPath, cacheableResource);
+        get(idPath, new CachedResponse(responseCache(), version, cachePolicy, refresher(), new CoalescingHandler(version, new GetById())));
 
         // post method [Almost DONE]
         post(path, setUpModel);
-        post(path, setDataSource);
         post(path, contentTypeValidator);
         post(path, objectMapper);
         post(path, receivedDataValidator);
@@ -229,31 +325,28 @@ public class Application extends HttpServlet {
         post(path, updateCacheableResource);
 
         // put method
-        put(path + ":id", setUpModel);
-        put(path + ":id", setDataSource);
-        put(path + ":id", contentTypeValidator);
-        put(path + ":id", idConverter);
-        put(path + ":id", objectMapper);
-        put(path + ":id", receivedDataValidator);
-        put(path + ":id", new Update());
-        put(path + ":id", updateCacheableResource);
+        put(idPath, setUpModel);
+        put(idPath, contentTypeValidator);
+        put(idPath, idConverter);
+        put(idPath, objectMapper);
+        put(idPath, receivedDataValidator);
+        put(idPath, new Update());
+        put(idPath, updateCacheableResource);
 
         // patch method
-        patch(path + ":id", setUpModel);
-        patch(path + ":id", setDataSource);
-        patch(path + ":id", contentTypeValidator);
-        patch(path + ":id", idConverter);
-        patch(path + ":id", objectMapper);
-        patch(path + ":id", receivedDataValidator);
-        patch(path + ":id", new Update());
-        patch(path + ":id", updateCacheableResource);
+        patch(idPath, setUpModel);
+        patch(idPath, contentTypeValidator);
+        patch(idPath, idConverter);
+        patch(idPath, objectMapper);
+        patch(idPath, receivedDataValidator);
+        patch(idPath, new Update());
+        patch(idPath, updateCacheableResource);
 
         // delete method
-        delete(path + ":id", setUpModel);
-        delete(path + ":id", setDataSource);
-        delete(path + ":id", idConverter);
-        delete(path + ":id", new Delete());
-        delete(path + ":id", updateCacheableResource);
+        delete(idPath, setUpModel);
+        delete(idPath, idConverter);
+        delete(idPath, new Delete());
+        delete(idPath, updateCacheableResource);
 
         List<Field> fields = FieldUtils.getAllFields(model);
         for (Field field: fields) {
@@ -261,12 +354,12 @@ public class Application extends HttpServlet {
                 ParameterizedType fieldListType = (ParameterizedType) field.getGenericType();
                 Class<?> fieldListClass = (Class<?>) fieldListType.getActualTypeArguments()[0];
                 Persistence<Object> persistence = SingletonDataSource.getInstance(fieldListClass);
-                String pathd = path + ":id/" + English.plural(fieldListClass.getSimpleName().toLowerCase());
+                String pathd = idPath + "/" + English.plural(fieldListClass.getSimpleName().toLowerCase());
 
                 get(pathd, setUpModel);
                 get(pathd, idConverter);
                 get(pathd, (req, res) -> {
-                    Object id = req.getAttribute("id");
+                    Object id = req.context().id();
                     // TODO: change it
                     List<Object> list = persistence.getAll();
 
@@ -300,12 +393,10 @@ public class Application extends HttpServlet {
      * <p><strong>route mapping</strong></p>
      * @param urlPattern The URL pattern to map the handler to.
      * @param handler The HTTP request handler object to handle this requests.
-     * @param urlVerbMap The container of the method of this request
+     * @param method The http method of the route
      */
-    private void mapHandlerToEndpoint(String urlPattern, HttpRequestHandler handler, Map<String, List<HttpRequestHandler>> urlVerbMap) {
-        List<HttpRequestHandler> handlerList = urlVerbMap.computeIfAbsent(urlPattern, k -> new ArrayList<>());
-
-        handlerList.add(handler);
+    private void mapHandlerToEndpoint(String urlPattern, HttpRequestHandler handler, HttpMethod method) {
+        routeTable.add(method, urlPattern).addHandler(handler);
     }
     // TODO: find a solution to emulate the use function that exists in express
     protected void use(String urlPattern, HttpRequestHandler handler) {
@@ -322,7 +413,7 @@ public class Application extends HttpServlet {
      * @param handler The HTTP request handler object to handle GET requests.
      */
     protected void get(String urlPattern, HttpRequestHandler handler) {
-        mapHandlerToEndpoint(urlPattern, handler, urlGetMap);
+        mapHandlerToEndpoint(urlPattern, handler, HttpMethod.GET);
     }
     /**
      * Maps a PoST request with the specified URL pattern to the given HTTP request handler.
@@ -331,7 +422,7 @@ public class Application extends HttpServlet {
      * @param handler The HTTP request handler object to handle PoST requests.
      */
     protected void post(String urlPattern, HttpRequestHandler handler) {
-        mapHandlerToEndpoint(urlPattern, handler, urlPostMap);
+        mapHandlerToEndpoint(urlPattern, handler, HttpMethod.POST);
     }
     /**
      * Maps a PUT request with the specified URL pattern to the given HTTP request handler.
@@ -340,7 +431,7 @@ public class Application extends HttpServlet {
      * @param handler The HTTP request handler object to handle PUT requests.
      */
     protected void put(String urlPattern, HttpRequestHandler handler) {
-        mapHandlerToEndpoint(urlPattern, handler, urlPutMap);
+        mapHandlerToEndpoint(urlPattern, handler, HttpMethod.PUT);
     }
     /**
      * Maps a DELETE request with the specified URL pattern to the given HTTP request handler.
@@ -349,7 +440,7 @@ public class Application extends HttpServlet {
      * @param handler The HTTP request handler object to handle DELETE requests.
      */
     protected void delete(String urlPattern, HttpRequestHandler handler) {
-        mapHandlerToEndpoint(urlPattern, handler, urlDeleteMap);
+        mapHandlerToEndpoint(urlPattern, handler, HttpMethod.DELETE);
     }
     /**
      * Maps a PATCH request with the specified URL pattern to the given HTTP request handler.
@@ -358,37 +449,46 @@ public class Application extends HttpServlet {
      * @param handler The HTTP request handler object to handle PATCH requests.
      */
     protected void patch(String urlPattern, HttpRequestHandler handler) {
-        mapHandlerToEndpoint(urlPattern, handler, urlPatchMap);
+        mapHandlerToEndpoint(urlPattern, handler, HttpMethod.PATCH);
     }
-    // Supporting patch method and override the behavior of get
+    /**
+     * <p>Dispatches every incoming http request to the route of its method and path from the route table.</p>
+     *
+     * <p>HEAD requests are answered by the GET routes without a body, OPTIONS requests are answered with the
+     * Allow header of the path, and a request to an existing path with a method that does not have a route
+     * is answered with 405 and the Allow header.</p>
+     */
     @Override
     protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
-        String method = req.getMethod();
-        if (method.equals("PATCH")) {
-            this.doPatch(req, resp);
-        } else if (method.equals("GET")) {
-            this.doGet(req, resp);
-        } else {
-            super.service(req, resp);
+        HttpMethod method = HttpMethod.of(req.getMethod());
+        if (method == null) {
+            resp.sendError(resp.SC_NOT_IMPLEMENTED);
+            return;
         }
-    }
-    @Override
-    protected void doGet(HttpServletRequest req, HttpServletResponse res) throws IOException {
-        process(urlGetMap, req, res);
-    }
-    @Override
-    protected void doPost(HttpServletRequest req, HttpServletResponse res) throws IOException {
-        process(urlPostMap, req, res);
-    }
-    @Override
-    protected void doPut(HttpServletRequest req, HttpServletResponse res) throws IOException {
-        process(urlPutMap, req, res);
-    }
-    @Override
-    protected void doDelete(HttpServletRequest req, HttpServletResponse res) throws IOException {
-        process(urlDeleteMap, req, res);
-    }
-    protected void doPatch(HttpServletRequest req, HttpServletResponse res) throws IOException {
-        process(urlPatchMap, req, res);
+
+        // the path of this request is the URI without the context path and the servlet path
+        String uri = req.getRequestURI();
+        int from = req.getContextPath().length();
+        String servletPath = req.getServletPath();
+        if (uri.startsWith(servletPath, from)) from += servletPath.length();
+
+        if (method != HttpMethod.OPTIONS) {
+            // resolve the route and its params in one walk of the routes trie
+            RouteMatch match = routeTable.resolve(method, uri, from);
+            if (match != null) {
+                process(match, req, (method == HttpMethod.HEAD)? new NoBodyResponse(resp): resp);
+                return;
+            }
+        }
+
+        String allow = routeTable.allow(uri, from, uri.length());
+        if (allow == null) {
+            resp.sendError(resp.SC_NOT_FOUND);
+            return;
+        }
+
+        resp.setHeader("Allow", allow);
+        if (method == HttpMethod.OPTIONS) resp.setStatus(resp.SC_OK);
+        else resp.sendError(resp.SC_METHOD_NOT_ALLOWED);
     }
 }
@@ -0,0 +1,28 @@
+package com.creativityfactory.swiftserver.app;
+
+import com.creativityfactory.swiftserver.request.Request;
+import com.creativityfactory.swiftserver.response.Response;
+
+/**
+ * <p>A middleware which tells the chain of its route whether the next middleware is called, by the result of
+ * {@link #handle(Request, Response)} instead of the flag of the request.</p>
+ *
+ * <p>When it is called as a plain {@link HttpRequestHandler} the result is given to {@code req.next(boolean)},
+ * so it can still be mapped and called like any other handler.</p>
+ */
+public interface ChainedHandler extends HttpRequestHandler {
+    /**
+     * Handles the request.
+     *
+     * @param req the request.
+     * @param res the response.
+     * @return true if the next middleware of the chain is called, false if this one has answered the request.
+     * @throws Exception if the request can not be handled.
+     */
+    boolean handle(Request req, Response res) throws Exception;
+
+    @Override
+    default void method(Request req, Response res) throws Exception {
+        req.next(handle(req, res));
+    }
+}
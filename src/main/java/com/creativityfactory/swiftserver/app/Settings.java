@@ -0,0 +1,163 @@
+package com.creativityfactory.swiftserver.app;
+
+import jakarta.servlet.ServletConfig;
+
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>This class holds the settings of the application. The settings are read from the init parameters of the
+ * servlet, and can be changed by the client code inside {@code execute()} before the application is frozen.</p>
+ *
+ * <p>Example of setting the size of the route cache in web.xml:</p>
+ * <pre>{@code
+ * <init-param>
+ *     <param-name>swiftserve.routeCacheSize</param-name>
+ *     <param-value>4096</param-value>
+ * </init-param>
+ * }</pre>
+ *
+ * <p>or in the code of the client:</p>
+ * <pre>{@code
+ * @Override
+ * protected void execute() {
+ *     settings().set(Settings.ROUTE_CACHE_SIZE, 4096);
+ * }
+ * }</pre>
+ */
+public class Settings {
+    /**
+     * The maximum number of URIs kept in the route cache, zero disables the cache.
+     */
+    public static final String ROUTE_CACHE_SIZE = "swiftserve.routeCacheSize";
+    /**
+     * The maximum size in bytes of the body of a request, a larger body is rejected with the status 413.
+     */
+    public static final String MAX_BODY_SIZE = "swiftserve.maxBodySize";
+    /**
+     * The maximum number of bytes of the bodies kept by the server-side cache of the GET responses, zero disables
+     * the cache.
+     */
+    public static final String RESPONSE_CACHE_SIZE = "swiftserve.responseCacheSize";
+    /**
+     * The number of threads refreshing the stale bodies of the server-side cache in the background.
+     */
+    public static final String REFRESH_THREADS = "swiftserve.refreshThreads";
+    /**
+     * The storage engine of the default data source: "json" for the JSON snapshot and its log, "mapped" for the
+     * memory mapped record files of the large collections.
+     */
+    public static final String STORAGE_ENGINE = "swiftserve.storage.engine";
+    /**
+     * The maximum number of writes of a model stored together by the default data source.
+     */
+    public static final String WRITE_BATCH_SIZE = "swiftserve.storage.maxBatchSize";
+    /**
+     * How long in microseconds the first write of a batch waits for more writes, zero to only batch the writes
+     * already queued.
+     */
+    public static final String WRITE_BATCH_WINDOW = "swiftserve.storage.batchWindowMicros";
+    /**
+     * Whether every batch of writes of the default data source is flushed to the disk.
+     */
+    public static final String WRITE_FSYNC = "swiftserve.storage.fsync";
+    /**
+     * Whether the responses are compressed when the client accepts gzip or deflate.
+     */
+    public static final String COMPRESSION = "swiftserve.compression";
+    /**
+     * The minimum size in bytes of a compressed body.
+     */
+    public static final String COMPRESSION_MIN_SIZE = "swiftserve.compression.minSize";
+    /**
+     * The comma separated list of the compressed content types.
+     */
+    public static final String COMPRESSION_TYPES = "swiftserve.compression.types";
+    /**
+     * The level of the compression, from 0 to 9 or -1 for the default level of zlib.
+     */
+    public static final String COMPRESSION_LEVEL = "swiftserve.compression.level";
+
+    private final Map<String, String> values = new HashMap<>();
+
+    public Settings() {}
+
+    /**
+     * Creates the settings from the init parameters of the given servlet config.
+     * @param config the config of the servlet, may be null.
+     */
+    public Settings(ServletConfig config) {
+        if (config == null) return;
+
+        Enumeration<String> names = config.getInitParameterNames();
+        while (names != null && names.hasMoreElements()) {
+            String name = names.nextElement();
+            values.put(name, config.getInitParameter(name));
+        }
+    }
+
+    /**
+     * Sets the value of a setting.
+     *
+     * @param name the name of the setting.
+     * @param value the value of the setting, a null value removes the setting.
+     * @return the current Settings object for chaining.
+     */
+    public Settings set(String name, Object value) {
+        if (value == null) values.remove(name);
+        else values.put(name, value.toString());
+
+        return this;
+    }
+
+    /**
+     * Returns the value of a setting as a string.
+     *
+     * @param name the name of the setting.
+     * @param defaultValue the value to return if the setting is absent.
+     * @return the value of the setting, or the default value if it is absent.
+     */
+    public String get(String name, String defaultValue) {
+        String value = values.get(name);
+        return (value == null)? defaultValue: value.trim();
+    }
+
+    /**
+     * Returns the value of a setting as an integer.
+     *
+     * @param name the name of the setting.
+     * @param defaultValue the value to return if the setting is absent.
+     * @return the value of the setting, or the default value if it is absent.
+     * @throws NumberFormatException if the value of the setting is not an integer.
+     */
+    public int getInt(String name, int defaultValue) {
+        String value = values.get(name);
+        return (value == null)? defaultValue: Integer.parseInt(value.trim());
+    }
+
+    /**
+     * Returns the value of a setting as a boolean, a value other than "true" (ignoring case) is false.
+     *
+     * @param name the name of the setting.
+     * @param defaultValue the value to return if the setting is absent.
+     * @return the value of the setting, or the default value if it is absent.
+     */
+    public boolean getBoolean(String name, boolean defaultValue) {
+        String value = values.get(name);
+        return (value == null)? defaultValue: Boolean.parseBoolean(value.trim());
+    }
+
+    /**
+     * Returns the value of a setting as a long.
+     *
+     * @param name the name of the setting.
+     * @param defaultValue the value to return if the setting is absent.
+     * @return the value of the setting, or the default value if it is absent.
+     * @throws NumberFormatException if the value of the setting is not a long.
+     */
+    public long getLong(String name, long defaultValue) {
+        String value = values.get(name);
+        return (value == null)? defaultValue: Long.parseLong(value.trim());
+    }
+}
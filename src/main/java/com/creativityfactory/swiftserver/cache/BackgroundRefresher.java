@@ -0,0 +1,80 @@
+package com.creativityfactory.swiftserver.cache;
+
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Runs the refreshes of the stale entries of the server-side cache on a bounded pool of daemon threads. A key
+ * is refreshed by at most one task at a time, so the requests finding the same stale entry start a single
+ * refresh and are all answered with the stale body meanwhile.</p>
+ *
+ * <p>The queue of the pool is bounded too, a refresh which does not fit is dropped: the stale entry is served
+ * until a later request starts a refresh, or until it expires and is computed by a request.</p>
+ */
+public class BackgroundRefresher {
+    private static final int QUEUE_SIZE = 256;
+
+    private final ThreadPoolExecutor executor;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a refresher.
+     * @param threads the number of threads of the pool, at least one.
+     */
+    public BackgroundRefresher(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "swiftserve-refresh-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        int size = Math.max(threads, 1);
+        this.executor = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_SIZE), factory, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Starts the refresh of the given key, unless it is already being refreshed.
+     *
+     * @param key the key of the refreshed entry.
+     * @param task the task computing and caching the new entry.
+     * @return true if the refresh has been started by this call.
+     */
+    public boolean refresh(String key, Callable<?> task) {
+        if (!refreshing.add(key)) return false;
+
+        try {
+            executor.execute(() -> {
+                try {
+                    task.call();
+                } catch (Exception exception) {
+                    exception.printStackTrace();
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException exception) {
+            refreshing.remove(key);
+            return false;
+        }
+    }
+
+    /**
+     * Returns whether the given key is being refreshed.
+     * @param key the key of an entry.
+     * @return true if a refresh of this key is queued or running.
+     */
+    public boolean isRefreshing(String key) {
+        return refreshing.contains(key);
+    }
+
+    /**
+     * Stops the pool, the queued refreshes are dropped.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
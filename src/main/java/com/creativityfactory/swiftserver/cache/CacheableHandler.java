@@ -0,0 +1,60 @@
+package com.creativityfactory.swiftserver.cache;
+
+import com.creativityfactory.swiftserver.app.HttpRequestHandler;
+import com.creativityfactory.swiftserver.request.Request;
+import com.creativityfactory.swiftserver.request.RequestContext;
+import com.creativityfactory.swiftserver.response.EncodedBody;
+import com.creativityfactory.swiftserver.response.HttpResponse;
+
+/**
+ * A handler whose body can also be rendered without a request and a response, from the context of a
+ * request and its query string only. The server-side cache fills an entry by capturing the body the handler
+ * writes, so a body too large for the cache is still streamed, and uses the rendering to refresh a stale entry in
+ * the background after the request which found it has been answered.
+ */
+public interface CacheableHandler extends HttpRequestHandler {
+    /**
+     * Renders the body of the response, with its status if it is not a success. It may be called from another
+     * thread than the one of the request, so it must only read the given context and query string.
+     *
+     * @param context the context of the request, it is not modified by this method.
+     * @param queryString the raw query string of the request, may be null.
+     * @return the body of the response with its status, only a 200 body is cached, or null if the response must be
+     * sent by {@link #method(com.creativityfactory.swiftserver.request.Request, com.creativityfactory.swiftserver.response.Response)}.
+     * @throws Exception if the body can not be rendered.
+     */
+    EncodedBody render(RequestContext context, String queryString) throws Exception;
+
+    /**
+     * Handles the request with the body captured up to the given size, see {@link #capture(HttpRequestHandler, Request, HttpResponse, int)}.
+     *
+     * @param req the request.
+     * @param res the response.
+     * @param maxBytes the maximum size of the captured body.
+     * @return the captured body with its status, or null if the body has been sent.
+     * @throws Exception if the request can not be handled.
+     */
+    default EncodedBody capture(Request req, HttpResponse res, int maxBytes) throws Exception {
+        return capture(this, req, res, maxBytes);
+    }
+
+    /**
+     * Calls a handler with the body of the response captured instead of sent, as long as it is not larger than
+     * the given size. A larger body is streamed while the handler writes it, as without capture.
+     *
+     * @param handler the handler of the request.
+     * @param req the request.
+     * @param res the response.
+     * @param maxBytes the maximum size of the captured body.
+     * @return the captured body with its status, which has not been sent, or null if the body has been sent or the
+     * response has no body.
+     * @throws Exception if the request can not be handled.
+     */
+    static EncodedBody capture(HttpRequestHandler handler, Request req, HttpResponse res, int maxBytes) throws Exception {
+        res.capture(maxBytes);
+        handler.method(req, res);
+        EncodedBody body = res.captured();
+
+        return (body == null)? null: body.withStatus(res.statusCode());
+    }
+}
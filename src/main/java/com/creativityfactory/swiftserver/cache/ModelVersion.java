@@ -0,0 +1,92 @@
+package com.creativityfactory.swiftserver.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>The version clock of a model. Every write to the model increments the version of the collection, and the
+ * written entity records the version of its write, so an update to one entity changes the version of the
+ * collection and of this entity only. The time of the last write is kept in milliseconds for the Last-Modified
+ * header, unlike the versions two writes in the same second are not told apart by this header.</p>
+ *
+ * <p>The clock is lock-free, it is read and written by the threads of the container with atomic operations.</p>
+ *
+ * <p>The versions are only known by this process, the tags built from them contain the epoch of the registry
+ * so a tag given before a restart never matches a tag given after.</p>
+ */
+public class ModelVersion {
+    private final String epoch;
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong lastModified = new AtomicLong(System.currentTimeMillis());
+    private final Map<Object, Long> entities = new ConcurrentHashMap<>();
+
+    ModelVersion(String epoch) {
+        this.epoch = epoch;
+    }
+
+    /**
+     * Returns the version of the collection.
+     * @return the number of writes to the model.
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Returns the time of the last write to the model, or of the creation of the clock if there is no write.
+     * @return the time in milliseconds.
+     */
+    public long lastModified() {
+        return lastModified.get();
+    }
+
+    /**
+     * Returns the version of an entity.
+     * @param id the id of the entity.
+     * @return the version of the last write to this entity, or zero if it has not been written.
+     */
+    public long versionOf(Object id) {
+        Long entityVersion = entities.get(id);
+        return (entityVersion == null)? 0: entityVersion;
+    }
+
+    /**
+     * Records a write to the model.
+     * @param id the id of the written entity, or null if it is unknown.
+     * @return the new version of the collection.
+     */
+    public long bump(Object id) {
+        long newVersion = version.incrementAndGet();
+        if (id != null) entities.merge(id, newVersion, Math::max);
+        lastModified.accumulateAndGet(System.currentTimeMillis(), Math::max);
+
+        return newVersion;
+    }
+
+    /**
+     * Returns the strong entity tag of the collection, or of an entity.
+     * @param id the id of the entity, or null for the collection.
+     * @return the tag of the current version, with its quotes.
+     */
+    public String tagOf(Object id) {
+        return (id == null)? collectionTag(): entityTag(id);
+    }
+
+    /**
+     * Returns the strong entity tag of the collection.
+     * @return the tag of the current version of the collection, with its quotes.
+     */
+    public String collectionTag() {
+        return "\"" + epoch + "-" + version.get() + "\"";
+    }
+
+    /**
+     * Returns the strong entity tag of an entity.
+     * @param id the id of the entity.
+     * @return the tag of the current version of the entity, with its quotes.
+     */
+    public String entityTag(Object id) {
+        return "\"" + epoch + "-e" + versionOf(id) + "\"";
+    }
+}
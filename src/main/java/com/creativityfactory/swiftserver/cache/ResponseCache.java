@@ -0,0 +1,236 @@
+package com.creativityfactory.swiftserver.cache;
+
+import com.creativityfactory.swiftserver.response.EncodedBody;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>A bounded cache of the encoded bodies of the GET responses, keyed by the route, the path and the normalized
+ * query string of the request. Every entry keeps the entity tag of the version it has been computed for, an
+ * entry whose tag is not the current tag of the resource is stale: a write to the model invalidates the cached
+ * responses only by incrementing its version.</p>
+ *
+ * <p>The cache is bounded by the number of bytes of the plain bodies, the compressed variants kept by an
+ * {@link EncodedBody} are not counted. Like the cache of the routes, it is split in least-recently-used segments
+ * guarded by their own lock.</p>
+ */
+public class ResponseCache {
+    private static final int SEGMENTS = 16;
+
+    private final long maxBytes;
+    private final int maxEntryBytes;
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a cache holding at most the given number of bytes, a size of zero disables the cache. A body larger
+     * than a segment is never cached.
+     * @param maxBytes the maximum number of bytes of the cached bodies.
+     */
+    public ResponseCache(long maxBytes) {
+        this.maxBytes = Math.max(maxBytes, 0);
+        int segmentCount = (this.maxBytes < SEGMENTS)? 0: SEGMENTS;
+        this.maxEntryBytes = (segmentCount == 0)? 0: (int) Math.min(Integer.MAX_VALUE, this.maxBytes / segmentCount);
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) segments[i] = new Segment(this.maxBytes / segmentCount);
+    }
+
+    /**
+     * Builds the key of a request.
+     *
+     * @param pattern the pattern of the matched route.
+     * @param path the path of the request.
+     * @param queryString the raw query string of the request, may be null.
+     * @return the key of the request, the parameters of the query are sorted so their order does not matter.
+     */
+    public static String key(String pattern, String path, String queryString) {
+        StringBuilder key = new StringBuilder(pattern.length() + path.length() + 16).append(pattern).append(' ').append(path);
+        if (queryString == null || queryString.isEmpty()) return key.toString();
+
+        String[] parameters = queryString.split("&");
+        Arrays.sort(parameters);
+        char separator = '?';
+        for (String parameter: parameters) {
+            if (parameter.isEmpty()) continue;
+            key.append(separator).append(parameter);
+            separator = '&';
+        }
+
+        return key.toString();
+    }
+
+    /**
+     * Returns whether the cache is enabled.
+     * @return false if the size of the cache is zero.
+     */
+    public boolean isEnabled() {
+        return segments.length > 0;
+    }
+
+    /**
+     * Returns the largest body which can be cached.
+     * @return the maximum size of a body in bytes.
+     */
+    public int maxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    /**
+     * Returns the cached response of the given key if it has been computed for the given tag.
+     *
+     * @param key the key of the request.
+     * @param tag the current entity tag of the resource.
+     * @return the cached entry, or null if it is absent or stale.
+     */
+    public Entry get(String key, String tag) {
+        if (segments.length == 0) return null;
+
+        Entry entry = segment(key).get(key);
+        if (entry == null || !entry.tag.equals(tag)) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return entry;
+    }
+
+    /**
+     * Caches the response of the given key, it replaces the previous one.
+     *
+     * @param key the key of the request.
+     * @param tag the entity tag of the version the body has been computed for.
+     * @param body the encoded body.
+     * @return the cached entry.
+     */
+    public Entry put(String key, String tag, EncodedBody body) {
+        Entry entry = new Entry(tag, body, System.currentTimeMillis());
+        if (segments.length == 0 || body.size() > maxEntryBytes) return entry;
+
+        segment(key).put(key, entry);
+        return entry;
+    }
+
+    /**
+     * Removes all the cached responses.
+     */
+    public void clear() {
+        for (Segment segment: segments) segment.clear();
+    }
+
+    /**
+     * Returns the maximum number of bytes of this cache.
+     * @return the maximum number of bytes.
+     */
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the number of bytes of the cached bodies.
+     * @return the number of bytes.
+     */
+    public long bytes() {
+        long bytes = 0;
+        for (Segment segment: segments) {
+            synchronized (segment) {
+                bytes += segment.bytes;
+            }
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Returns the number of lookups which found a fresh response.
+     * @return the number of hits.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups which did not find a fresh response.
+     * @return the number of misses.
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    private Segment segment(String key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+
+        return segments[(hash & 0x7fffffff) % segments.length];
+    }
+
+    /**
+     * A cached response.
+     */
+    public static final class Entry {
+        private final String tag;
+        private final EncodedBody body;
+        private final long createdAt;
+
+        private Entry(String tag, EncodedBody body, long createdAt) {
+            this.tag = tag;
+            this.body = body;
+            this.createdAt = createdAt;
+        }
+
+        public String tag() {
+            return tag;
+        }
+
+        public EncodedBody body() {
+            return body;
+        }
+
+        /**
+         * Returns when the body has been cached.
+         * @return the time in milliseconds.
+         */
+        public long createdAt() {
+            return createdAt;
+        }
+    }
+
+    /**
+     * A least-recently-used map bounded by the bytes of its bodies, guarded by the lock of the segment.
+     */
+    private static class Segment {
+        private final long capacity;
+        private final Map<String, Entry> map = new LinkedHashMap<>(16, 0.75f, true);
+        private long bytes;
+
+        private Segment(long capacity) {
+            this.capacity = capacity;
+        }
+
+        private synchronized Entry get(String key) {
+            return map.get(key);
+        }
+
+        private synchronized void put(String key, Entry entry) {
+            Entry previous = map.put(key, entry);
+            if (previous != null) bytes -= previous.body.size();
+            bytes += entry.body.size();
+
+            Iterator<Entry> eldest = map.values().iterator();
+            while (bytes > capacity && eldest.hasNext()) {
+                bytes -= eldest.next().body.size();
+                eldest.remove();
+            }
+        }
+
+        private synchronized void clear() {
+            map.clear();
+            bytes = 0;
+        }
+    }
+}
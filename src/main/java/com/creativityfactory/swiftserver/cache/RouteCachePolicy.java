@@ -0,0 +1,87 @@
+package com.creativityfactory.swiftserver.cache;
+
+import com.creativityfactory.swiftserver.annotation.CachePolicy;
+
+/**
+ * The cache policy of the routes of a model, built once from its {@link CachePolicy} annotation: the value of
+ * the Cache-Control header is built in advance and the durations are converted for the server-side cache.
+ */
+public class RouteCachePolicy {
+    /**
+     * The policy of a model without annotation: public responses fresh for 36000 seconds.
+     */
+    public static final RouteCachePolicy DEFAULT = new RouteCachePolicy(36000, 0, false, false);
+
+    private final String cacheControl;
+    private final long ttlMillis;
+    private final long staleMillis;
+    private final boolean privateCache;
+    private final boolean noStore;
+
+    public RouteCachePolicy(int maxAge, int staleWhileRevalidate, boolean privateCache, boolean noStore) {
+        this.ttlMillis = Math.max(maxAge, 0) * 1000L;
+        this.staleMillis = Math.max(staleWhileRevalidate, 0) * 1000L;
+        this.privateCache = privateCache;
+        this.noStore = noStore;
+
+        if (noStore) {
+            this.cacheControl = "no-store";
+        } else {
+            String value = (privateCache? "private": "public") + ", max-age=" + Math.max(maxAge, 0);
+            if (staleWhileRevalidate > 0) value += ", stale-while-revalidate=" + staleWhileRevalidate;
+            this.cacheControl = value;
+        }
+    }
+
+    /**
+     * Returns the policy of the given model.
+     * @param model the class of the model.
+     * @return the policy of its annotation, or {@link #DEFAULT} if it is not annotated.
+     */
+    public static RouteCachePolicy of(Class<?> model) {
+        CachePolicy policy = model.getAnnotation(CachePolicy.class);
+        if (policy == null) return DEFAULT;
+
+        return new RouteCachePolicy(policy.maxAge(), policy.staleWhileRevalidate(), policy.privateCache(), policy.noStore());
+    }
+
+    /**
+     * Returns the value of the Cache-Control header.
+     * @return the value of the header.
+     */
+    public String cacheControl() {
+        return cacheControl;
+    }
+
+    /**
+     * Returns how long a response stays fresh.
+     * @return the duration in milliseconds.
+     */
+    public long ttlMillis() {
+        return ttlMillis;
+    }
+
+    /**
+     * Returns how long a stale response can be served while it is refreshed.
+     * @return the duration in milliseconds.
+     */
+    public long staleMillis() {
+        return staleMillis;
+    }
+
+    /**
+     * Returns whether the responses can be kept by the server-side cache, which is shared by all the users.
+     * @return false if the responses are private or must not be stored.
+     */
+    public boolean isServerCacheable() {
+        return !privateCache && !noStore && ttlMillis > 0;
+    }
+
+    /**
+     * Returns whether the responses must not be cached at all.
+     * @return true if the responses must not be stored.
+     */
+    public boolean isNoStore() {
+        return noStore;
+    }
+}
@@ -0,0 +1,63 @@
+package com.creativityfactory.swiftserver.cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>Coalesces the concurrent computations of the same key: the first caller of a key computes the value, and
+ * the callers arriving while it is in flight wait for it and receive the same value, or the same exception.
+ * The key is removed as soon as its computation is done, so a later caller computes the value again; nothing
+ * is cached by this class.</p>
+ *
+ * @param <V> the type of the computed values.
+ */
+public class SingleFlight<V> {
+    private final ConcurrentMap<String, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the value of the given key, computed by this call or by the call already in flight for this key.
+     *
+     * @param key the key of the computation.
+     * @param computation computes the value, it is called only if no computation of the key is in flight.
+     * @return the computed value.
+     * @throws Exception the exception thrown by the computation.
+     */
+    public V run(String key, Callable<V> computation) throws Exception {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = flights.putIfAbsent(key, flight);
+        if (inFlight != null) return await(inFlight);
+
+        try {
+            V value = computation.call();
+            flight.complete(value);
+            return value;
+        } catch (Throwable throwable) {
+            flight.completeExceptionally(throwable);
+            throw throwable;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * Returns the number of computations in flight.
+     * @return the number of keys being computed.
+     */
+    public int inFlight() {
+        return flights.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) throws Exception {
+        try {
+            return flight.join();
+        } catch (CompletionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw exception;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.creativityfactory.swiftserver.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>This class holds the version clocks of the models of an application, they are used to give entity tags
+ * to the responses of the generated GET routes and to answer a conditional request without touching the
+ * persistence layer.</p>
+ */
+public class VersionRegistry {
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<String, ModelVersion> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the version clock of the given model, it is created on the first call.
+     * @param model the class of the model.
+     * @return the version clock of the model.
+     */
+    public ModelVersion of(Class<?> model) {
+        return versions.computeIfAbsent(model.getName(), name -> new ModelVersion(epoch));
+    }
+
+    /**
+     * Returns whether the value of an If-None-Match header matches the given tag, with the weak comparison
+     * required for this header.
+     *
+     * @param ifNoneMatch the value of the If-None-Match header, may be null.
+     * @param tag the current tag of the resource, with its quotes.
+     * @return true if the client already has the current representation.
+     */
+    public static boolean matches(String ifNoneMatch, String tag) {
+        if (ifNoneMatch == null) return false;
+
+        for (String candidate: ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*")) return true;
+            if (trimmed.startsWith("W/")) trimmed = trimmed.substring(2);
+            if (trimmed.equals(tag)) return true;
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,222 @@
+package com.creativityfactory.swiftserver.error;
+
+import com.creativityfactory.swiftserver.response.Response;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>This class writes the JSON body of an error response, the same body as an {@link ErrorResponse} built by
+ * {@link DirectorErrorResponseBuilder} and serialized by Gson, without building it. The part of the body between
+ * the timestamp and the path is serialized once for the messages of the framework and for the registered
+ * messages, only the timestamp and the path are written for every error. The timestamp is formatted by Gson once
+ * per second.</p>
+ *
+ * <p>Other messages are escaped while they are written, they are not kept since they may come from the
+ * request.</p>
+ */
+public final class ErrorBodyWriter {
+    private static final int MAX_STATUS = 600;
+    private static final Gson gson = new Gson();
+    // the serialized middle of the body by message, for every status
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Map<String, String>[] serialized = new Map[MAX_STATUS];
+    private static volatile Timestamp timestamp = new Timestamp(-1, null);
+
+    static {
+        register(Response.REST_BAD_REQUEST, "unmatched type");
+        register(Response.REST_BAD_REQUEST, "Malformed json format");
+        register(Response.REST_BAD_REQUEST, "The mime-type of request is not application/json");
+        register(Response.REST_BAD_REQUEST, "the id type does not match the id type of the resource");
+        register(Response.REST_INTERNAL_SERVER_ERROR, "try later");
+        register(Response.REST_INTERNAL_SERVER_ERROR, "Try later");
+        register(Response.REST_INTERNAL_SERVER_ERROR, "The resource has not registered, try later");
+    }
+
+    private ErrorBodyWriter() {}
+
+    /**
+     * Serializes in advance the body of an error message which is sent often.
+     *
+     * @param status the status of the error.
+     * @param message the message of the error.
+     */
+    public static void register(int status, String message) {
+        if (status < 0 || status >= MAX_STATUS || message == null) return;
+
+        synchronized (serialized) {
+            if (serialized[status] == null) serialized[status] = new ConcurrentHashMap<>();
+        }
+        serialized[status].put(message, middle(status, message));
+    }
+
+    /**
+     * Writes the body of an error.
+     *
+     * @param out the writer of the body.
+     * @param status the status of the error.
+     * @param message the message of the error, may be null.
+     * @param path the path of the request.
+     * @throws IOException if the body can not be written.
+     */
+    public static void write(Writer out, int status, String message, String path) throws IOException {
+        write(out, status, message, path, System.currentTimeMillis());
+    }
+
+    static void write(Writer out, int status, String message, String path, long now) throws IOException {
+        out.write("{\"timestamp\":");
+        out.write(timestamp(now));
+
+        Map<String, String> messages = (status >= 0 && status < MAX_STATUS)? serialized[status]: null;
+        String middle = (messages == null || message == null)? null: messages.get(message);
+        if (middle != null) {
+            out.write(middle);
+        } else {
+            writeMiddle(out, status, message);
+        }
+
+        if (path != null) {
+            out.write(",\"path\":");
+            writeString(out, path);
+        }
+        out.write('}');
+    }
+
+    private static String middle(int status, String message) {
+        StringBuilder builder = new StringBuilder(64);
+        try {
+            writeMiddle(new StringBuilderWriter(builder), status, message);
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+
+        return builder.toString();
+    }
+
+    // the status, the error and the message, in the order of the fields of ErrorResponse
+    private static void writeMiddle(Writer out, int status, String message) throws IOException {
+        out.write(",\"status\":");
+        out.write(Integer.toString(status));
+
+        String error = errorOf(status);
+        if (error != null) {
+            out.write(",\"error\":");
+            writeString(out, error);
+        }
+        if (message != null) {
+            out.write(",\"message\":");
+            writeString(out, message);
+        }
+    }
+
+    // the errors set by DirectorErrorResponseBuilder
+    private static String errorOf(int status) {
+        switch (status) {
+            case Response.REST_BAD_REQUEST:
+                return "Bad request";
+            case Response.REST_NOT_FOUND:
+                return "Not found";
+            case Response.REST_INTERNAL_SERVER_ERROR:
+                return "Internal server error";
+            default:
+                return null;
+        }
+    }
+
+    private static String timestamp(long now) {
+        long second = Math.floorDiv(now, 1000);
+        Timestamp current = timestamp;
+        if (current.second != second) {
+            // the default format of the dates of Gson does not show the milliseconds
+            current = new Timestamp(second, gson.toJson(new Date(second * 1000)));
+            timestamp = current;
+        }
+
+        return current.json;
+    }
+
+    /**
+     * Writes a JSON string with the escaping of Gson, including its escaping of the HTML characters.
+     */
+    private static void writeString(Writer out, String value) throws IOException {
+        out.write('"');
+        int last = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement;
+            if (c < 128) {
+                replacement = replacementOf(c);
+                if (replacement == null) continue;
+            } else if (c == '\u2028') {
+                replacement = "\\u2028";
+            } else if (c == '\u2029') {
+                replacement = "\\u2029";
+            } else {
+                continue;
+            }
+
+            if (last < i) out.write(value, last, i - last);
+            out.write(replacement);
+            last = i + 1;
+        }
+        if (last < length) out.write(value, last, length - last);
+        out.write('"');
+    }
+
+    private static String replacementOf(char c) {
+        switch (c) {
+            case '"': return "\\\"";
+            case '\\': return "\\\\";
+            case '\t': return "\\t";
+            case '\b': return "\\b";
+            case '\n': return "\\n";
+            case '\r': return "\\r";
+            case '\f': return "\\f";
+            case '<': return "\\u003c";
+            case '>': return "\\u003e";
+            case '&': return "\\u0026";
+            case '=': return "\\u003d";
+            case '\'': return "\\u0027";
+            default: return (c < 0x20)? String.format("\\u%04x", (int) c): null;
+        }
+    }
+
+    private static final class Timestamp {
+        private final long second;
+        private final String json;
+
+        private Timestamp(long second, String json) {
+            this.second = second;
+            this.json = json;
+        }
+    }
+
+    private static final class StringBuilderWriter extends Writer {
+        private final StringBuilder builder;
+
+        private StringBuilderWriter(StringBuilder builder) {
+            this.builder = builder;
+        }
+
+        @Override
+        public void write(char[] chars, int off, int len) {
+            builder.append(chars, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            builder.append(str, off, off + len);
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    }
+}
@@ -1,45 +1,65 @@
 package com.creativityfactory.swiftserver.middleware;
 
-import com.creativityfactory.swiftserver.app.HttpRequestHandler;
+import com.creativityfactory.swiftserver.app.ChainedHandler;
+import com.creativityfactory.swiftserver.cache.ModelVersion;
+import com.creativityfactory.swiftserver.cache.RouteCachePolicy;
+import com.creativityfactory.swiftserver.cache.VersionRegistry;
 import com.creativityfactory.swiftserver.request.Request;
 import com.creativityfactory.swiftserver.response.Response;
 
-import java.util.Date;
-import java.util.Map;
-
 /**
- * This middleware has the rule of set upping http caching.
+ * This middleware has the rule of set upping http caching. The entity tag of the response is given by the
+ * version of the collection, or of the entity for a route with an id, so a conditional request is answered
+ * before the persistence layer is touched. The Cache-Control header is the one of the cache policy of the model.
  */
-public class CacheResource implements HttpRequestHandler {
-    private Map<String, Date> cacheableResources;
+public class CacheResource implements ChainedHandler {
+    private final ModelVersion version;
+    private final RouteCachePolicy policy;
+
+    public CacheResource(ModelVersion version) {
+        this(version, RouteCachePolicy.DEFAULT);
+    }
 
-    public CacheResource(Map<String, Date> cacheableResources) {
-        this.cacheableResources = cacheableResources;
+    public CacheResource(ModelVersion version, RouteCachePolicy policy) {
+        this.version = version;
+        this.policy = policy;
     }
 
     @Override
-    public void method(Request req, Response res) {
+    public boolean handle(Request req, Response res) {
+        if (policy.isNoStore()) {
+            res.setHeader("Cache-Control", policy.cacheControl());
+            return true;
+        }
+
         try {
-            Class<?> model = (Class<?>) req.getAttribute("model");
-            Date lastModifiedTime = cacheableResources.get(model.getName());
+            // the Last-Modified header has a precision of one second
+            long lastModifiedTime = (version.lastModified() / 1000) * 1000;
+            Object id = req.context().id();
+            String etag = version.tagOf(id);
+
+            res.setHeader("ETag", etag);
+            res.setHeader("Cache-Control", policy.cacheControl());
+            res.lastModified(lastModifiedTime);
 
+            // If-None-Match takes precedence over If-Modified-Since when both are sent
+            String ifNoneMatch = req.header("If-None-Match");
             long ifModifiedSince = req.getDateHeader("If-Modified-Since");
-            if (ifModifiedSince > 0 && ifModifiedSince == lastModifiedTime.getTime()) {
-                // If the modification time matches, send a 304 Not Modified response
+            boolean notModified = (ifNoneMatch != null)
+                    ? VersionRegistry.matches(ifNoneMatch, etag)
+                    : ifModifiedSince > 0 && ifModifiedSince >= lastModifiedTime;
+            if (notModified) {
+                // If the representation of the client is the current one, send a 304 Not Modified response
                 res.status(Response.REST_NOT_MODIFIED);
-                return;
+                return false;
             }
-            res.cacheControl(36000);
 
-            lastModifiedTime = new Date();
-            lastModifiedTime.setTime((lastModifiedTime.getTime() / 1000) * 1000);
-            cacheableResources.put(model.getName(), lastModifiedTime);
-            res.lastModified(lastModifiedTime.getTime());
-
-            req.next(true);
+            return true;
         } catch (Exception exception) {
             exception.printStackTrace();
             res.sendError(Response.REST_INTERNAL_SERVER_ERROR, "Try later");
         }
+
+        return false;
     }
 }
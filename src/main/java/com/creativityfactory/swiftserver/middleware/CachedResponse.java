@@ -0,0 +1,104 @@
+package com.creativityfactory.swiftserver.middleware;
+
+import com.creativityfactory.swiftserver.app.HttpRequestHandler;
+import com.creativityfactory.swiftserver.cache.BackgroundRefresher;
+import com.creativityfactory.swiftserver.cache.CacheableHandler;
+import com.creativityfactory.swiftserver.cache.ModelVersion;
+import com.creativityfactory.swiftserver.cache.ResponseCache;
+import com.creativityfactory.swiftserver.cache.RouteCachePolicy;
+import com.creativityfactory.swiftserver.request.Request;
+import com.creativityfactory.swiftserver.request.RequestContext;
+import com.creativityfactory.swiftserver.response.EncodedBody;
+import com.creativityfactory.swiftserver.response.HttpResponse;
+import com.creativityfactory.swiftserver.response.Response;
+
+/**
+ * <p>This middleware wraps a GET handler of a generated REST API with the server-side cache of the responses. A
+ * fresh cached body is sent as it is, without calling the handler, otherwise the body written by the handler is
+ * captured, then cached with the tag of the version it has been computed for and sent. A body larger than the
+ * largest entry of the cache is streamed instead, it is never held in memory as a whole. A cached body is fresh while the version has
+ * not changed and its age is below the max age of the cache policy of the model.</p>
+ *
+ * <p>When the policy of the model has a stale-while-revalidate window, a body past its max age but still inside
+ * the window is sent as it is while a single background task renders it again, so the requests at the expiry of
+ * an entry do not wait for the data source. A body whose version has changed is never sent.</p>
+ */
+public class CachedResponse implements HttpRequestHandler {
+    private final ResponseCache cache;
+    private final ModelVersion version;
+    private final RouteCachePolicy policy;
+    private final BackgroundRefresher refresher;
+    private final HttpRequestHandler handler;
+
+    public CachedResponse(ResponseCache cache, ModelVersion version, HttpRequestHandler handler) {
+        this(cache, version, RouteCachePolicy.DEFAULT, null, handler);
+    }
+
+    public CachedResponse(ResponseCache cache, ModelVersion version, RouteCachePolicy policy, HttpRequestHandler handler) {
+        this(cache, version, policy, null, handler);
+    }
+
+    /**
+     * Creates the middleware.
+     *
+     * @param cache the cache of the responses.
+     * @param version the version clock of the model.
+     * @param policy the cache policy of the model.
+     * @param refresher the refresher of the stale bodies, null to never send a stale body.
+     * @param handler the GET handler, stale bodies are refreshed only if it is a {@link CacheableHandler}.
+     */
+    public CachedResponse(ResponseCache cache, ModelVersion version, RouteCachePolicy policy,
+                          BackgroundRefresher refresher, HttpRequestHandler handler) {
+        this.cache = cache;
+        this.version = version;
+        this.policy = policy;
+        this.refresher = refresher;
+        this.handler = handler;
+    }
+
+    @Override
+    public void method(Request req, Response res) throws Exception {
+        if (!cache.isEnabled() || !policy.isServerCacheable() || !(res instanceof HttpResponse)) {
+            handler.method(req, res);
+            return;
+        }
+
+        HttpResponse response = (HttpResponse) res;
+        RequestContext context = req.context();
+        // the tag is taken before the handler reads the data, a write in between only makes the entry stale
+        String tag = version.tagOf(context.id());
+        String key = ResponseCache.key(req.pattern(), req.path(), req.queryString());
+        ResponseCache.Entry entry = cache.get(key, tag);
+        if (entry != null) {
+            long age = System.currentTimeMillis() - entry.createdAt();
+            if (age < policy.ttlMillis()) {
+                response.send(entry.body());
+                return;
+            }
+            if (age < policy.ttlMillis() + policy.staleMillis() && refresher != null && handler instanceof CacheableHandler) {
+                refresh(key, context, req.queryString());
+                response.send(entry.body());
+                return;
+            }
+        }
+
+        // the body is captured while the handler writes it, a body too large for the cache is streamed
+        EncodedBody body = (handler instanceof CacheableHandler)
+                ? ((CacheableHandler) handler).capture(req, response, cache.maxEntryBytes())
+                : CacheableHandler.capture(handler, req, response, cache.maxEntryBytes());
+        if (body == null) return;
+
+        if (body.status() == 200) cache.put(key, tag, body);
+        response.send(body);
+    }
+
+    private void refresh(String key, RequestContext context, String queryString) {
+        CacheableHandler renderer = (CacheableHandler) handler;
+        refresher.refresh(key, () -> {
+            String tag = version.tagOf(context.id());
+            EncodedBody body = renderer.render(context, queryString);
+            if (body != null && body.status() == 200) cache.put(key, tag, body);
+            return null;
+        });
+    }
+}
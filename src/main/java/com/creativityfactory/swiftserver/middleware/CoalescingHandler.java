@@ -0,0 +1,63 @@
+package com.creativityfactory.swiftserver.middleware;
+
+import com.creativityfactory.swiftserver.cache.CacheableHandler;
+import com.creativityfactory.swiftserver.cache.ModelVersion;
+import com.creativityfactory.swiftserver.cache.ResponseCache;
+import com.creativityfactory.swiftserver.cache.SingleFlight;
+import com.creativityfactory.swiftserver.request.Request;
+import com.creativityfactory.swiftserver.request.RequestContext;
+import com.creativityfactory.swiftserver.response.EncodedBody;
+import com.creativityfactory.swiftserver.response.HttpResponse;
+import com.creativityfactory.swiftserver.response.Response;
+
+/**
+ * <p>This middleware wraps a GET handler of a generated REST API so the identical requests in flight at the same
+ * time read the data source once, when their body can be cached: the first one captures the body its handler
+ * writes and the others wait for it, then they all send the same encoded body, with its status. The requests are
+ * identical if they are for the same model, the same id and the same normalized query string, and if they see the
+ * same version of the model, so a request arriving after a write never receives a body rendered before it.</p>
+ *
+ * <p>A body too large to be captured has been streamed by the first request, the others then call the handler
+ * and stream their own. Without a capture, when the server-side cache is disabled or the model is not stored by
+ * it, the requests are not coalesced and the handler streams the body.</p>
+ */
+public class CoalescingHandler implements CacheableHandler {
+    private final ModelVersion version;
+    private final CacheableHandler handler;
+    private final SingleFlight<EncodedBody> flights = new SingleFlight<>();
+
+    public CoalescingHandler(ModelVersion version, CacheableHandler handler) {
+        this.version = version;
+        this.handler = handler;
+    }
+
+    @Override
+    public void method(Request req, Response res) throws Exception {
+        handler.method(req, res);
+    }
+
+    @Override
+    public EncodedBody capture(Request req, HttpResponse res, int maxBytes) throws Exception {
+        boolean[] first = {false};
+        EncodedBody body = flights.run(key(req.context(), req.queryString()), () -> {
+            first[0] = true;
+            return handler.capture(req, res, maxBytes);
+        });
+        if (first[0] || body != null) return body;
+
+        // the body of the first request has been streamed, this one is streamed too
+        handler.method(req, res);
+        return null;
+    }
+
+    @Override
+    public EncodedBody render(RequestContext context, String queryString) throws Exception {
+        return flights.run(key(context, queryString), () -> handler.render(context, queryString));
+    }
+
+    private String key(RequestContext context, String queryString) {
+        Object id = context.id();
+        // the tag is taken before the data is read, as for the cached responses
+        return version.tagOf(id) + ' ' + ResponseCache.key(context.model().name(), (id == null)? "": "/" + id, queryString);
+    }
+}
@@ -1,7 +1,6 @@
 package com.creativityfactory.swiftserver.middleware;
 
-import com.creativityfactory.swiftserver.persistence.Persistence;
-import com.creativityfactory.swiftserver.app.HttpRequestHandler;
+import com.creativityfactory.swiftserver.app.ChainedHandler;
 import com.creativityfactory.swiftserver.request.Request;
 import com.creativityfactory.swiftserver.response.Response;
 
@@ -9,15 +8,14 @@ import com.creativityfactory.swiftserver.response.Response;
 /**
  * This middleware is for checking the existence of data source or not.
  */
-public class DataSourceChecker implements HttpRequestHandler {
+public class DataSourceChecker implements ChainedHandler {
     @Override
-    public void method(Request req, Response res) {
-        Persistence<Object> dtSource = (Persistence<Object>) req.getAttribute("dtSource");
-        if (dtSource == null) {
+    public boolean handle(Request req, Response res) {
+        if (req.context().persistence() == null) {
             res.sendError(Response.REST_INTERNAL_SERVER_ERROR, "try later");
-            return;
+            return false;
         }
 
-        req.next(true);
+        return true;
     }
 }
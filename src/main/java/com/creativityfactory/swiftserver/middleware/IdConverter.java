@@ -1,29 +1,44 @@
 package com.creativityfactory.swiftserver.middleware;
 
 import com.creativityfactory.swiftserver.utils.IdUtils;
-import com.creativityfactory.swiftserver.app.HttpRequestHandler;
+import com.creativityfactory.swiftserver.app.ChainedHandler;
 import com.creativityfactory.swiftserver.request.Request;
 import com.creativityfactory.swiftserver.response.Response;
 
 /**
  * This middleware is for converting the incoming id (from route parameter) from string to its
- * appropriate type.
+ * appropriate type. When the id placeholder is typed, for example ":id&lt;int&gt;", the id has already been
+ * converted by the router and it is only passed along.
  */
-public class IdConverter implements HttpRequestHandler {
+public class IdConverter implements ChainedHandler {
+    private final Class<?> model;
+    private final Class<?> idType;
+
+    public IdConverter(Class<?> model) {
+        this.model = model;
+        this.idType = IdUtils.getIdTypeFromModel(model);
+    }
+
     @Override
-    public void method(Request req, Response res) {
-        Class<?> model = (Class<?>) req.getAttribute("model");
+    public boolean handle(Request req, Response res) {
+        Object id = req.paramValue("id");
 
-        String idParam = req.params("id");
-        Object id = IdUtils.convertId(model, idParam);
+        // an untyped placeholder gives the id as a string
+        if ((id instanceof String) && (idType != String.class)) {
+            try {
+                id = IdUtils.convertId(model, (String) id);
+            } catch (NumberFormatException exception) {
+                id = null;
+            }
+        }
 
         // check the compatibility of the id
         if (id == null) {
             res.sendError(Response.REST_BAD_REQUEST, "the id type does not match the id type of the resource");
-            return;
+            return false;
         }
 
-        req.setAttribute("id", id);
-        req.next(true);
+        req.context().setId(id);
+        return true;
     }
 }
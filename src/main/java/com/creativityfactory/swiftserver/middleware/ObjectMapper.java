@@ -1,78 +1,55 @@
 package com.creativityfactory.swiftserver.middleware;
 
 import com.creativityfactory.swiftserver.annotation.BelongTo;
-import com.creativityfactory.swiftserver.persistence.Persistence;
-import com.creativityfactory.swiftserver.persistence.SingletonDataSource;
-import com.creativityfactory.swiftserver.utils.FieldUtils;
-import com.creativityfactory.swiftserver.utils.IdUtils;
+import com.creativityfactory.swiftserver.model.ModelDecoder;
+import com.creativityfactory.swiftserver.request.BodyTooLargeException;
 import com.google.gson.Gson;
-import com.google.gson.annotations.SerializedName;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonSyntaxException;
 
-import com.creativityfactory.swiftserver.app.HttpRequestHandler;
+import com.creativityfactory.swiftserver.app.ChainedHandler;
 import com.creativityfactory.swiftserver.request.Request;
 import com.creativityfactory.swiftserver.response.Response;
 
-import java.lang.reflect.Field;
-import java.util.List;
-import java.util.Map;
+import java.io.IOException;
 
 /**
- * This middleware is for transforming incoming data from the id of other resources to theirs real objects.
+ * This middleware is for decoding the incoming json to an object of the model, where the ids of other resources
+ * ({@link BelongTo} fields) are transformed to theirs real objects. The body is decoded in a single pass while it
+ * is read, and the decoded object is stored in the context of the request for the next middlewares.
  */
-public class ObjectMapper implements HttpRequestHandler {
-    @Override
-    public void method(Request req, Response res) {
-        Class<?> model = (Class<?>) req.getAttribute("model");
-        Gson gson = (Gson) req.getAttribute("gson");
+public class ObjectMapper implements ChainedHandler {
+    private final ModelDecoder decoder;
+
+    public ObjectMapper(Class<?> model, Gson gson) {
+        this.decoder = new ModelDecoder(model, gson);
+    }
 
-        String jsonBody = req.jsonBody();
-        // map object to id ....
-        // deserialize thw incoming json
-        Map<String, Object> deserializedJson;
+    @Override
+    public boolean handle(Request req, Response res) {
+        Object body;
         try {
-            TypeToken<Map<String, Object>> typeToken = new TypeToken<>() {};
-            deserializedJson = gson.fromJson(req.jsonBody(), typeToken);
+            body = decoder.decode(req.bodyReader());
+        } catch (BodyTooLargeException exception) {
+            throw exception;
+        } catch (JsonSyntaxException exception) {
+            res.sendError(Response.REST_BAD_REQUEST, "unmatched type");
+            return false;
+        } catch (IOException | IllegalStateException exception) {
+            res.sendError(Response.REST_BAD_REQUEST, "Malformed json format");
+            return false;
         } catch (Exception exception) {
             exception.printStackTrace();
 
-            res.sendError(Response.REST_BAD_REQUEST, "Malformed json format");
-            return;
+            res.sendError(Response.REST_INTERNAL_SERVER_ERROR, "try later");
+            return false;
         }
 
-        List<Field> fields = FieldUtils.getAllFields(model);
-        for (Field field: fields) {
-            String fieldName = (field.isAnnotationPresent(SerializedName.class)) ? field.getAnnotation(SerializedName.class).value() : field.getName();
-            // check if this field or the id field of an object is Integer
-            if ((
-                    (field.getType() == Integer.class) || (IdUtils.getIdTypeFromModel(field.getType()) == Integer.class))
-                    && deserializedJson.containsKey(fieldName) && deserializedJson.get(fieldName).getClass() == Double.class)
-            {
-                Double doubleValue = (Double) deserializedJson.get(fieldName);
-                Integer integerValue = doubleValue.intValue();
-                deserializedJson.put(fieldName, integerValue);
-            }
-            if(field.isAnnotationPresent(BelongTo.class)){
-                try {
-                    Persistence<Object> dataSrc = SingletonDataSource.getInstance(field.getType());
-
-                    if (deserializedJson.containsKey(fieldName)) {
-                        Object belongToObjectId = deserializedJson.get(fieldName);
-                        // checking the type of id that for replacing it with an exist object or not
-                        if (IdUtils.getIdTypeFromModel(field.getType()) == belongToObjectId.getClass()) {
-                            deserializedJson.put(fieldName, dataSrc.getById(deserializedJson.get(fieldName)));
-                        }
-                    }
-                } catch (Exception exception) {
-                    exception.printStackTrace();
-
-                    res.sendError(Response.REST_INTERNAL_SERVER_ERROR, "try later");
-                    return;
-                }
-            }
+        if (body == null) {
+            res.sendError(Response.REST_BAD_REQUEST, "Malformed json format");
+            return false;
         }
 
-        req.setBody(gson.toJson(deserializedJson));
-        req.next(true);
+        req.context().setBody(body);
+        return true;
     }
 }
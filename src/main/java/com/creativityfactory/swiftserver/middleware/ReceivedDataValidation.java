@@ -2,11 +2,11 @@ package com.creativityfactory.swiftserver.middleware;
 
 import com.creativityfactory.swiftserver.annotation.HasMany;
 import com.creativityfactory.swiftserver.annotation.UnRequired;
-import com.creativityfactory.swiftserver.app.HttpRequestHandler;
+import com.creativityfactory.swiftserver.app.ChainedHandler;
 import com.creativityfactory.swiftserver.response.Response;
-import com.creativityfactory.swiftserver.utils.FieldUtils;
-import com.creativityfactory.swiftserver.utils.IdUtils;
+import com.creativityfactory.swiftserver.model.ModelDescriptor;
 import com.google.gson.JsonSyntaxException;
+import com.creativityfactory.swiftserver.request.BodyTooLargeException;
 import com.creativityfactory.swiftserver.request.Request;
 import com.google.gson.annotations.SerializedName;
 
@@ -16,21 +16,20 @@ import java.util.List;
 /**
  * This middleware is for the validation the incoming data.
  */
-public class ReceivedDataValidation implements HttpRequestHandler {
+public class ReceivedDataValidation implements ChainedHandler {
     @Override
-    public void method(Request req, Response res) {
-        Class<?> model = (Class<?>) req.getAttribute("model");
+    public boolean handle(Request req, Response res) {
+        ModelDescriptor model = req.context().model();
 
-        List<Field> fields = FieldUtils.getAllFields(model);
+        List<Field> fields = model.fields();
 
         try {
-            Object receivedData = req.body(model);
-            Field idField = IdUtils.getIdField(model);
+            // the body is parsed only once, by the object mapper if it runs before or here otherwise
+            Object receivedData = req.context().body();
+            if (receivedData == null) receivedData = req.body(model.model());
+            Field idField = model.idField();
             String method = req.method().toLowerCase();
             for (Field field : fields) {
-                boolean accessRight = field.canAccess(receivedData);
-                field.setAccessible(true);
-
                 if ((method.equals("put") && field.equals(idField))
                         || (method.equals("patch") && field.get(receivedData) == null)
                 ) continue;
@@ -44,19 +43,20 @@ public class ReceivedDataValidation implements HttpRequestHandler {
                         throw new Exception("The field " + fieldName + " is required");
                     }
                 }
-
-                field.setAccessible(accessRight);
             }
 
+            req.context().setBody(receivedData);
+        } catch (BodyTooLargeException exception) {
+            throw exception;
         } catch (Exception exception) {
             exception.printStackTrace();
 
             String message = (exception.getClass() == JsonSyntaxException.class)? "unmatched type": exception.getMessage();
             res.sendError(Response.REST_BAD_REQUEST, message);
-            return;
+            return false;
         }
 
 
-        req.next(true);
+        return true;
     }
 }
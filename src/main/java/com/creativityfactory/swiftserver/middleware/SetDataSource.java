@@ -2,18 +2,18 @@ package com.creativityfactory.swiftserver.middleware;
 
 import com.creativityfactory.swiftserver.persistence.Persistence;
 import com.creativityfactory.swiftserver.persistence.SingletonDataSource;
-import com.creativityfactory.swiftserver.app.HttpRequestHandler;
+import com.creativityfactory.swiftserver.app.ChainedHandler;
 import com.creativityfactory.swiftserver.request.Request;
 import com.creativityfactory.swiftserver.response.Response;
 
 /**
  * This middleware is for set up the data source which the REST API will base on it to do persistence stuffs.
  */
-public class SetDataSource implements HttpRequestHandler {
+public class SetDataSource implements ChainedHandler {
     @Override
-    public void method(Request req, Response res) {
+    public boolean handle(Request req, Response res) {
         Persistence<Object> persistence;
-        Class<?> model = (Class<?>) req.getAttribute("model");
+        Class<?> model = req.context().model().model();
 
         try {
             persistence = SingletonDataSource.getInstance(model);
@@ -21,10 +21,10 @@ public class SetDataSource implements HttpRequestHandler {
             exception.printStackTrace();
 
             res.sendError(Response.REST_INTERNAL_SERVER_ERROR, "try later");
-            return;
+            return false;
         }
 
-        req.setAttribute("dtSource", persistence);
-        req.next(true);
+        req.context().setPersistence(persistence);
+        return true;
     }
 }
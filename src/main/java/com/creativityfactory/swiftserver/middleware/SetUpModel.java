@@ -1,26 +1,27 @@
 package com.creativityfactory.swiftserver.middleware;
 
-import com.google.gson.Gson;
-import com.creativityfactory.swiftserver.app.HttpRequestHandler;
+import com.creativityfactory.swiftserver.app.ChainedHandler;
+import com.creativityfactory.swiftserver.model.ModelDescriptor;
+import com.creativityfactory.swiftserver.persistence.Persistence;
 import com.creativityfactory.swiftserver.request.Request;
 import com.creativityfactory.swiftserver.response.Response;
 
 /**
- * This middleware is for set the model(Class) which we will create a REST-API for it
+ * This middleware is for set the model(Class) which we will create a REST-API for it, and its persistence
+ * object. Both are resolved once when the route is created, so binding them to a request costs nothing.
  */
-public class SetUpModel implements HttpRequestHandler {
-    private final Class<?> model;
-    private final Gson gson;
+public class SetUpModel implements ChainedHandler {
+    private final ModelDescriptor model;
+    private final Persistence<Object> persistence;
 
-    public SetUpModel(Class<?> model, Gson gson) {
-        this.model = model;
-        this.gson = gson;
+    public SetUpModel(Class<?> model, Persistence<Object> persistence) {
+        this.model = ModelDescriptor.of(model);
+        this.persistence = persistence;
     }
 
     @Override
-    public void method(Request req, Response res) {
-        req.setAttribute("model", model);
-        req.setAttribute("gson", gson);
-        req.next(true);
+    public boolean handle(Request req, Response res) {
+        req.context().setModel(model).setPersistence(persistence);
+        return true;
     }
 }
@@ -1,27 +1,23 @@
 package com.creativityfactory.swiftserver.middleware;
 
 import com.creativityfactory.swiftserver.app.HttpRequestHandler;
+import com.creativityfactory.swiftserver.cache.ModelVersion;
 import com.creativityfactory.swiftserver.request.Request;
 import com.creativityfactory.swiftserver.response.Response;
 
-import java.util.Date;
-import java.util.Map;
-
 /**
- * This middleware is for indicating that there is a change in this resource and update the http caching.
+ * This middleware is for indicating that there is a change in this resource and update the http caching, the
+ * version of the collection and of the written entity are incremented.
  */
 public class UpdateCacheableResource implements HttpRequestHandler {
-    private Map<String, Date> cacheableResources;
+    private final ModelVersion version;
 
-    public UpdateCacheableResource(Map<String, Date> cacheableResources) {
-        this.cacheableResources = cacheableResources;
+    public UpdateCacheableResource(ModelVersion version) {
+        this.version = version;
     }
 
     @Override
-    public void method(Request req, Response res) throws IllegalAccessException {
-        Class<?> model = (Class<?>) req.getAttribute("model");
-        Date date = new Date();
-        date.setTime((date.getTime() / 1000) * 1000);
-        cacheableResources.put(model.getName(), date);
+    public void method(Request req, Response res) {
+        version.bump(req.context().id());
     }
 }
@@ -1,54 +1,66 @@
 package com.creativityfactory.swiftserver.middleware.rest;
 
+import com.creativityfactory.swiftserver.cache.CacheableHandler;
 import com.creativityfactory.swiftserver.persistence.Persistence;
+import com.creativityfactory.swiftserver.response.EncodedBody;
 import com.creativityfactory.swiftserver.utils.IdUtils;
-import com.creativityfactory.swiftserver.app.HttpRequestHandler;
 import com.creativityfactory.swiftserver.request.Request;
+import com.creativityfactory.swiftserver.request.RequestContext;
 import com.creativityfactory.swiftserver.response.Response;
+import com.creativityfactory.swiftserver.utils.RouteUtils;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 /**
  * This middleware is for sending all the existences of this resource.
  */
-public class Get implements HttpRequestHandler {
+public class Get implements CacheableHandler {
     @Override
-    public void method(Request req, Response res) {
-        Class<?> model = (Class<?>) req.getAttribute("model");
-        Persistence<Object> dtSource = (Persistence<Object>) req.getAttribute("dtSource");
+    public void method(Request req, Response res) throws Exception {
+        RequestContext context = req.context();
+        Class<?> model = context.model().model();
 
         try {
-            List<Object> list = null;
-            List<Map<String, Object>> responseList = new ArrayList<>();
-            String limitQuery = req.query("limit");
+            List<Object> list = load(context.persistence(), req.query("limit"));
 
-            if (limitQuery != null) {
-                int limit;
+            // every object is mapped and written while the array is streamed
+            res.jsonArray(list, obj -> IdUtils.mapIdToObject(obj, model));
+        } catch (Exception exception) {
+            exception.printStackTrace();
+            // a part of the array has been sent, the response is aborted instead of appending an error to it
+            if (res.isCommitted()) throw exception;
+
+            res.sendError(Response.REST_INTERNAL_SERVER_ERROR, "try later");
+        }
+    }
 
-                try {
-                    limit = Integer.parseInt(limitQuery);
-                    list = dtSource.getLimit(limit);
-                } catch (Exception exception) {
-                    limitQuery = null;
-                    if (exception.getClass() != NumberFormatException.class) throw new Exception(exception);
-                }
+    @Override
+    public EncodedBody render(RequestContext context, String queryString) throws Exception {
+        Class<?> model = context.model().model();
+        List<Object> list = load(context.persistence(), RouteUtils.extractQueries(queryString).get("limit"));
 
-            }
+        return EncodedBody.jsonArray(list, obj -> IdUtils.mapIdToObject(obj, model));
+    }
 
-            // this is not idiot but in the case of the user send malformed limit value
-            if (limitQuery == null) list = dtSource.getAll();
+    private static List<Object> load(Persistence<Object> dtSource, String limitQuery) throws Exception {
+        List<Object> list = null;
 
-            for (Object obj: list) {
-                responseList.add(IdUtils.mapIdToObject(obj, model));
-            }
+        if (limitQuery != null) {
+            int limit;
 
-            res.json(responseList);
-        } catch (Exception exception) {
-            exception.printStackTrace();
+            try {
+                limit = Integer.parseInt(limitQuery);
+                list = dtSource.getLimit(limit);
+            } catch (Exception exception) {
+                limitQuery = null;
+                if (exception.getClass() != NumberFormatException.class) throw new Exception(exception);
+            }
 
-            res.sendError(Response.REST_INTERNAL_SERVER_ERROR, "try later");
         }
+
+        // this is not idiot but in the case of the user send malformed limit value
+        if (limitQuery == null) list = dtSource.getAll();
+
+        return list;
     }
 }
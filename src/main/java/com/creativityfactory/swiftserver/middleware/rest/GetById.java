@@ -1,21 +1,24 @@
 package com.creativityfactory.swiftserver.middleware.rest;
 
+import com.creativityfactory.swiftserver.cache.CacheableHandler;
 import com.creativityfactory.swiftserver.persistence.Persistence;
+import com.creativityfactory.swiftserver.response.EncodedBody;
 import com.creativityfactory.swiftserver.utils.IdUtils;
-import com.creativityfactory.swiftserver.app.HttpRequestHandler;
 import com.creativityfactory.swiftserver.request.Request;
+import com.creativityfactory.swiftserver.request.RequestContext;
 import com.creativityfactory.swiftserver.response.Response;
 
 /**
  * This middleware is for a specific resource by id.
  */
-public class GetById implements HttpRequestHandler {
+public class GetById implements CacheableHandler {
     @Override
     public void method(Request req, Response res) {
-        Class<?> model = (Class<?>) req.getAttribute("model");
-        Persistence<Object> dtSource = (Persistence<Object>) req.getAttribute("dtSource");
+        RequestContext context = req.context();
+        Class<?> model = context.model().model();
+        Persistence<Object> dtSource = context.persistence();
 
-        Object id = req.getAttribute("id");
+        Object id = context.id();
         try {
             Object response = dtSource.getById(id);
 
@@ -30,4 +33,13 @@ public class GetById implements HttpRequestHandler {
             res.sendError(Response.REST_INTERNAL_SERVER_ERROR, "try later");
         }
     }
+
+    @Override
+    public EncodedBody render(RequestContext context, String queryString) throws Exception {
+        Object response = context.persistence().getById(context.id());
+        // a missing resource is answered with 404 and an empty object, as method() does
+        if (response == null) return EncodedBody.json(null).withStatus(404);
+
+        return EncodedBody.json(IdUtils.mapIdToObject(response, context.model().model()));
+    }
 }
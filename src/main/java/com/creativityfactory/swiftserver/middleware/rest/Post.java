@@ -2,33 +2,39 @@ package com.creativityfactory.swiftserver.middleware.rest;
 
 import com.creativityfactory.swiftserver.persistence.Persistence;
 import com.creativityfactory.swiftserver.utils.IdUtils;
-import com.creativityfactory.swiftserver.app.HttpRequestHandler;
+import com.creativityfactory.swiftserver.app.ChainedHandler;
 import com.creativityfactory.swiftserver.request.Request;
+import com.creativityfactory.swiftserver.request.RequestContext;
 import com.creativityfactory.swiftserver.response.Response;
 
 
 /**
  * This middleware for creating new resource.
  */
-public class Post implements HttpRequestHandler {
+public class Post implements ChainedHandler {
     @Override
-    public void method(Request req, Response res) {
-        Class<?> model = (Class<?>) req.getAttribute("model");
-        Persistence<Object> dtSource = (Persistence<Object>) req.getAttribute("dtSource");
+    public boolean handle(Request req, Response res) {
+        RequestContext context = req.context();
+        Class<?> model = context.model().model();
+        Persistence<Object> dtSource = context.persistence();
         try {
-            Object obj = req.body(model);
+            Object obj = context.body();
             Object response = dtSource.save(obj);
             if (response == null) {
                 res.sendError(Response.REST_INTERNAL_SERVER_ERROR, "The resource has not registered, try later");
-                return;
+                return false;
             }
 
+            // the id of the created resource is known only now, it is used to version the resource
+            context.setId(context.model().idOf(response));
             res.status(Response.REST_CREATED).json(IdUtils.mapIdToObject(response, model));
-            req.next(true);
+            return true;
         } catch (Exception exception) {
             exception.printStackTrace();
 
             res.sendError(Response.REST_INTERNAL_SERVER_ERROR, "try later");
         }
+
+        return false;
     }
 }
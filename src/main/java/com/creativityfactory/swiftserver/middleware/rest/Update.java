@@ -3,38 +3,47 @@ package com.creativityfactory.swiftserver.middleware.rest;
 import com.creativityfactory.swiftserver.persistence.Persistence;
 import com.creativityfactory.swiftserver.utils.FieldUtils;
 import com.creativityfactory.swiftserver.utils.IdUtils;
-import com.creativityfactory.swiftserver.app.HttpRequestHandler;
+import com.creativityfactory.swiftserver.app.ChainedHandler;
 import com.creativityfactory.swiftserver.request.Request;
+import com.creativityfactory.swiftserver.request.RequestContext;
 import com.creativityfactory.swiftserver.response.Response;
 
 /**
  * This middleware for updating an existed resource.
  */
-public class Update implements HttpRequestHandler {
+public class Update implements ChainedHandler {
     @Override
-    public void method(Request req, Response res) {
-        Class<?> model = (Class<?>) req.getAttribute("model");
-        Persistence<Object> dtSource = (Persistence<Object>) req.getAttribute("dtSource");
+    public boolean handle(Request req, Response res) {
+        RequestContext context = req.context();
+        Class<?> model = context.model().model();
+        Persistence<Object> dtSource = context.persistence();
 
-        Object id = req.getAttribute("id");
+        Object id = context.id();
         try {
             // get the old object
             Object oldObj = dtSource.getById(id);
             if (oldObj == null) {
                 res.status(Response.REST_NOT_FOUND).json(null);
-                return;
+                return false;
             }
-            // get the new object
-            Object receivedObj = req.body(model);
+            // the received object takes the values it does not set from the old one, which is shared by the
+            // readers of the data source and is replaced only once the update is stored
+            Object receivedObj = FieldUtils.mergeFields(oldObj, context.body());
 
             // update object
-            Object response = dtSource.update(FieldUtils.updateFields(oldObj, receivedObj));
+            Object response = (receivedObj == null)? null: dtSource.update(receivedObj);
+            if (response == null) {
+                res.sendError(Response.REST_INTERNAL_SERVER_ERROR, "try later");
+                return false;
+            }
             res.json(IdUtils.mapIdToObject(response, model));
-            req.next(true);
+            return true;
         } catch (Exception exception) {
             exception.printStackTrace();
 
             res.sendError(Response.REST_INTERNAL_SERVER_ERROR, "try later");
         }
+
+        return false;
     }
 }
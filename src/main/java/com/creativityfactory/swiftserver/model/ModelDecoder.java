@@ -0,0 +1,148 @@
+package com.creativityfactory.swiftserver.model;
+
+import com.creativityfactory.swiftserver.annotation.BelongTo;
+import com.creativityfactory.swiftserver.persistence.Persistence;
+import com.creativityfactory.swiftserver.persistence.SingletonDataSource;
+import com.creativityfactory.swiftserver.utils.IdUtils;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>This class decodes a JSON object into an instance of a model in a single pass over the characters of the
+ * body. The decoders of the fields are resolved once per model: every field is read by the Gson adapter of its
+ * type, so an Integer field is read as an integer without going through a Double, and the fields annotated with
+ * {@link BelongTo} are replaced by the object having the given id while reading.</p>
+ *
+ * <p>The fields are the ones Gson would deserialize: the fields of the model and its super classes which are
+ * neither static nor transient, under their {@link SerializedName} if any. Unknown names are skipped.</p>
+ */
+public class ModelDecoder {
+    private final Class<?> model;
+    private final Gson gson;
+    private final Map<String, FieldDecoder> decoders = new HashMap<>();
+    private final Constructor<?> constructor;
+
+    public ModelDecoder(Class<?> model, Gson gson) {
+        this.model = model;
+        this.gson = gson;
+
+        for (Class<?> clazz = model; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            for (Field field: clazz.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())) continue;
+                field.setAccessible(true);
+
+                FieldDecoder decoder = new FieldDecoder(field, gson);
+                SerializedName serializedName = field.getAnnotation(SerializedName.class);
+                if (serializedName == null) {
+                    decoders.putIfAbsent(field.getName(), decoder);
+                    continue;
+                }
+                decoders.putIfAbsent(serializedName.value(), decoder);
+                for (String alternate: serializedName.alternate()) decoders.putIfAbsent(alternate, decoder);
+            }
+        }
+
+        Constructor<?> noArgs;
+        try {
+            noArgs = model.getDeclaredConstructor();
+            noArgs.setAccessible(true);
+        } catch (NoSuchMethodException | RuntimeException exception) {
+            noArgs = null;
+        }
+        this.constructor = noArgs;
+    }
+
+    /**
+     * Decodes the JSON object of the given reader into a new instance of the model.
+     *
+     * @param reader the characters of the JSON object, the reader is not closed.
+     * @return the decoded instance, or null if the JSON value is null.
+     * @throws IOException if the JSON is malformed or there is an error reading the characters.
+     * @throws JsonSyntaxException if a value does not match the type of its field.
+     * @throws Exception if the object of a {@link BelongTo} field can not be loaded.
+     */
+    public Object decode(Reader reader) throws Exception {
+        JsonReader in = new JsonReader(reader);
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        Object instance = newInstance();
+        in.beginObject();
+        while (in.hasNext()) {
+            FieldDecoder decoder = decoders.get(in.nextName());
+            if (decoder == null) in.skipValue();
+            else decoder.read(in, instance);
+        }
+        in.endObject();
+
+        return instance;
+    }
+
+    private Object newInstance() throws Exception {
+        if (constructor != null) return constructor.newInstance();
+
+        // a model without a constructor without arguments is created the way Gson does
+        return gson.fromJson("{}", model);
+    }
+
+    /**
+     * The decoder of one field of the model.
+     */
+    private static final class FieldDecoder {
+        private final Field field;
+        private final TypeAdapter<?> adapter;
+        private final boolean belongTo;
+        private final TypeAdapter<?> idAdapter;
+        private volatile Persistence<Object> persistence;
+
+        private FieldDecoder(Field field, Gson gson) {
+            this.field = field;
+            this.adapter = gson.getAdapter(TypeToken.get(field.getGenericType()));
+            this.belongTo = field.isAnnotationPresent(BelongTo.class);
+
+            Class<?> idType = belongTo? IdUtils.getIdTypeFromModel(field.getType()): null;
+            this.idAdapter = (idType == null)? null: gson.getAdapter(idType);
+        }
+
+        private void read(JsonReader in, Object instance) throws Exception {
+            Object value;
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                value = null;
+            } else if (belongTo && idAdapter != null && in.peek() != JsonToken.BEGIN_OBJECT) {
+                // the client sends the id of the object it belongs to
+                value = persistence().getById(idAdapter.read(in));
+            } else {
+                value = adapter.read(in);
+            }
+
+            if (value == null && field.getType().isPrimitive()) return;
+            field.set(instance, value);
+        }
+
+        private Persistence<Object> persistence() throws Exception {
+            Persistence<Object> persistence = this.persistence;
+            if (persistence == null) {
+                persistence = SingletonDataSource.getInstance(field.getType());
+                this.persistence = persistence;
+            }
+
+            return persistence;
+        }
+    }
+}
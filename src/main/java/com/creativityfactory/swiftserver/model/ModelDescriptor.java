@@ -0,0 +1,95 @@
+package com.creativityfactory.swiftserver.model;
+
+import com.creativityfactory.swiftserver.utils.FieldUtils;
+import com.creativityfactory.swiftserver.utils.IdUtils;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>This class holds the metadata of a model which the generated REST APIs need on every request: the class
+ * of the model, its fields and its id field. The metadata is computed by reflection only once per model, and
+ * the descriptors are shared through {@link #of(Class)}.</p>
+ */
+public class ModelDescriptor {
+    private static final Map<Class<?>, ModelDescriptor> descriptors = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the descriptor of the given model, it is created on the first call.
+     *
+     * @param model the class of the model.
+     * @return the descriptor of the model.
+     */
+    public static ModelDescriptor of(Class<?> model) {
+        return descriptors.computeIfAbsent(model, ModelDescriptor::new);
+    }
+
+    private final Class<?> model;
+    private final List<Field> fields;
+    private final Field idField;
+    private final Class<?> idType;
+
+    private ModelDescriptor(Class<?> model) {
+        this.model = model;
+        this.fields = Collections.unmodifiableList(FieldUtils.getAllFields(model));
+        this.idField = IdUtils.getIdField(model);
+        this.idType = (idField == null)? null: idField.getType();
+
+        for (Field field: fields) field.setAccessible(true);
+        if (idField != null) idField.setAccessible(true);
+    }
+
+    /**
+     * Returns the class of the model.
+     * @return the class of the model.
+     */
+    public Class<?> model() {
+        return model;
+    }
+
+    /**
+     * Returns the name of the model, which is the full name of its class.
+     * @return the name of the model.
+     */
+    public String name() {
+        return model.getName();
+    }
+
+    /**
+     * Returns the fields of the model, they are already accessible.
+     * @return the fields of the model.
+     */
+    public List<Field> fields() {
+        return fields;
+    }
+
+    /**
+     * Returns the id field of the model, see {@link IdUtils#getIdField(Class)}.
+     * @return the id field, or null if the model has no fields.
+     */
+    public Field idField() {
+        return idField;
+    }
+
+    /**
+     * Returns the type of the id field of the model.
+     * @return the type of the id field, or null if the model has no fields.
+     */
+    public Class<?> idType() {
+        return idType;
+    }
+
+    /**
+     * Returns the value of the id of the given object of this model.
+     *
+     * @param obj an object of this model.
+     * @return the value of its id.
+     * @throws IllegalAccessException if the id field can not be read.
+     */
+    public Object idOf(Object obj) throws IllegalAccessException {
+        return idField.get(obj);
+    }
+}
@@ -0,0 +1,312 @@
+package com.creativityfactory.swiftserver.persistence;
+
+import com.creativityfactory.swiftserver.annotation.BelongTo;
+import com.creativityfactory.swiftserver.annotation.HasMany;
+import com.creativityfactory.swiftserver.model.ModelDescriptor;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.*;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>The binary snapshot of the entities of a model, the "&lt;model&gt;.bin" file of the {@link DefaultDataSource}.
+ * The file starts with the schema of the model, generated from its fields, then every entity is a length prefixed
+ * record of the values of the fields in the order of the schema:</p>
+ * <pre>
+ * [magic: "SWSB"][version: unsigned short][field count: unsigned short]([name: UTF][kind: byte])*
+ * [entity count: int]([length: int]([present: byte][value])*)*
+ * </pre>
+ *
+ * <p>The numbers, the booleans and the strings are stored as such, a {@link BelongTo} field by the id of the
+ * referenced entity, which is read back as a stub of the {@link References}, and any other field as JSON; a
+ * {@link HasMany} field is not stored. The entities are read and written in a single pass, the fields are set
+ * directly on a new instance of the model. A field is read by its name, so the fields added to the model since the
+ * snapshot keep their default value and the removed ones are skipped.</p>
+ */
+final class BinarySnapshot {
+    static final int MAGIC = 0x53575342;
+    static final int VERSION = 1;
+
+    // the kinds of the values
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte FLOAT = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte STRING = 6;
+    private static final byte REFERENCE = 7;
+    private static final byte JSON = 8;
+
+    private final Gson gson;
+    private final Class<?> model;
+    private final List<Column> columns = new ArrayList<>();
+    private final Map<String, Column> byName = new HashMap<>();
+    private final Constructor<?> constructor;
+
+    BinarySnapshot(Gson gson, Class<?> model) {
+        this.gson = gson;
+        this.model = model;
+
+        for (Field field: ModelDescriptor.of(model).fields()) {
+            if ((field.getModifiers() & (Modifier.STATIC | Modifier.TRANSIENT)) != 0) continue;
+            if (field.isAnnotationPresent(HasMany.class)) continue;
+
+            Column column = new Column(field);
+            columns.add(column);
+            byName.put(column.field.getName(), column);
+        }
+
+        Constructor<?> noArgs;
+        try {
+            noArgs = model.getDeclaredConstructor();
+            noArgs.setAccessible(true);
+        } catch (NoSuchMethodException exception) {
+            // the instances are then created by gson
+            noArgs = null;
+        }
+        this.constructor = noArgs;
+    }
+
+    /**
+     * Writes the schema of the model and the given entities.
+     * @param stream the stream of the snapshot.
+     * @param entities the entities of the model.
+     * @throws IOException if the entities can not be written.
+     */
+    void write(OutputStream stream, List<Object> entities) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(columns.size());
+        for (Column column: columns) {
+            out.writeUTF(column.field.getName());
+            out.writeByte(column.kind);
+        }
+
+        out.writeInt(entities.size());
+        ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+        DataOutputStream values = new DataOutputStream(record);
+        for (Object entity: entities) {
+            record.reset();
+            for (Column column: columns) writeValue(values, column.kind, column.valueOf(entity));
+            out.writeInt(record.size());
+            record.writeTo(out);
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads the entities of a snapshot.
+     * @param stream the stream of the snapshot.
+     * @return the entities in their order.
+     * @throws IOException if the stream is not a snapshot or if it is truncated.
+     */
+    List<Object> read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC) throw new IOException("Not a binary snapshot of " + model.getName());
+        int version = in.readUnsignedShort();
+        if (version != VERSION) throw new IOException("Unsupported version " + version + " of the snapshot of " + model.getName());
+
+        int count = in.readUnsignedShort();
+        Column[] stored = new Column[count];
+        byte[] kinds = new byte[count];
+        for (int i = 0; i < count; i++) {
+            stored[i] = byName.get(in.readUTF());
+            kinds[i] = in.readByte();
+        }
+
+        int size = in.readInt();
+        List<Object> entities = new ArrayList<>(size);
+        byte[] buffer = new byte[256];
+        for (int n = 0; n < size; n++) {
+            int length = in.readInt();
+            if (length > buffer.length) buffer = new byte[Math.max(length, buffer.length * 2)];
+            in.readFully(buffer, 0, length);
+
+            ByteBuffer record = ByteBuffer.wrap(buffer, 0, length);
+            Object entity = newInstance();
+            try {
+                for (int i = 0; i < count; i++) {
+                    Object value = readValue(record, kinds[i]);
+                    if (stored[i] != null) stored[i].assign(entity, kinds[i], value);
+                }
+            } catch (BufferUnderflowException exception) {
+                throw new IOException("Truncated record " + n + " in the snapshot of " + model.getName(), exception);
+            }
+            entities.add(entity);
+        }
+
+        return entities;
+    }
+
+    private void writeValue(DataOutputStream out, byte kind, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(0);
+            return;
+        }
+
+        out.writeByte(1);
+        switch (kind) {
+            case INT:
+                out.writeInt(((Number) value).intValue());
+                break;
+            case LONG:
+                out.writeLong(((Number) value).longValue());
+                break;
+            case DOUBLE:
+                out.writeDouble(((Number) value).doubleValue());
+                break;
+            case FLOAT:
+                out.writeFloat(((Number) value).floatValue());
+                break;
+            case BOOLEAN:
+                out.writeBoolean((Boolean) value);
+                break;
+            case STRING:
+                writeString(out, (String) value);
+                break;
+            case REFERENCE:
+                // the id of the referenced entity, with its own kind
+                byte idKind = kindOf(value.getClass());
+                out.writeByte(idKind);
+                writeValue(out, idKind, value);
+                break;
+            default:
+                writeString(out, gson.toJson(value));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static Object readValue(ByteBuffer in, byte kind) throws IOException {
+        if (in.get() == 0) return null;
+
+        switch (kind) {
+            case INT:
+                return in.getInt();
+            case LONG:
+                return in.getLong();
+            case DOUBLE:
+                return in.getDouble();
+            case FLOAT:
+                return in.getFloat();
+            case BOOLEAN:
+                return in.get() != 0;
+            case STRING:
+                return readString(in);
+            case REFERENCE:
+                return readValue(in, in.get());
+            case JSON:
+                return new Json(readString(in));
+            default:
+                throw new IOException("Unknown kind " + kind + " in a snapshot");
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining()) throw new BufferUnderflowException();
+
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static byte kindOf(Class<?> type) {
+        if (type == Integer.class || type == int.class) return INT;
+        if (type == Long.class || type == long.class) return LONG;
+        if (type == Double.class || type == double.class) return DOUBLE;
+        if (type == Float.class || type == float.class) return FLOAT;
+        if (type == Boolean.class || type == boolean.class) return BOOLEAN;
+        if (type == String.class) return STRING;
+        return JSON;
+    }
+
+    private Object newInstance() throws IOException {
+        if (constructor == null) return gson.fromJson("{}", model);
+
+        try {
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException exception) {
+            throw new IOException("Can not create an instance of " + model.getName(), exception);
+        }
+    }
+
+    // a value stored as JSON, it is decoded with the type of its field
+    private static final class Json {
+        private final String text;
+
+        private Json(String text) {
+            this.text = text;
+        }
+    }
+
+    private final class Column {
+        private final Field field;
+        private final byte kind;
+
+        private Column(Field field) {
+            this.field = field;
+            this.kind = field.isAnnotationPresent(BelongTo.class)? REFERENCE: kindOf(field.getType());
+        }
+
+        private Object valueOf(Object entity) throws IOException {
+            try {
+                Object value = field.get(entity);
+                if (kind != REFERENCE || value == null) return value;
+
+                return ModelDescriptor.of(field.getType()).idOf(value);
+            } catch (IllegalAccessException exception) {
+                throw new IOException(exception);
+            }
+        }
+
+        private void assign(Object entity, byte storedKind, Object value) throws IOException {
+            try {
+                if (kind == REFERENCE) {
+                    if (storedKind != REFERENCE) return;
+                    value = reference(value);
+                } else if (value instanceof Json) {
+                    value = gson.fromJson(((Json) value).text, field.getGenericType());
+                } else if (value != null && storedKind != kind) {
+                    value = gson.fromJson(gson.toJsonTree(value), field.getGenericType());
+                }
+                if (value == null && field.getType().isPrimitive()) return;
+
+                field.set(entity, value);
+            } catch (JsonParseException | IllegalArgumentException exception) {
+                System.out.println("[BinarySnapshot]: can not read the field " + field.getName() + " of " + model.getName() + ": " + exception.getMessage());
+            } catch (IllegalAccessException exception) {
+                throw new IOException(exception);
+            }
+        }
+
+        // the stub of the referenced entity, it is resolved when the entity is read
+        private Object reference(Object id) throws IOException {
+            if (id == null) return null;
+
+            Class<?> idType = ModelDescriptor.of(field.getType()).idType();
+            if (id instanceof Json) {
+                id = gson.fromJson(((Json) id).text, idType);
+            } else if (idType != null && !idType.isInstance(id)) {
+                id = gson.fromJson(gson.toJsonTree(id), idType);
+            }
+
+            return References.stub(field.getType(), id);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.creativityfactory.swiftserver.persistence;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compacts the storage of the loaded models on a background daemon thread. Every few seconds each store is asked
+ * for a compaction, which its {@link StorageEngine} starts only if it is needed.
+ */
+final class Compactor {
+    private static final long INTERVAL_SECONDS = 10;
+    private static final Set<ResidentStore> stores = ConcurrentHashMap.newKeySet();
+    private static ScheduledExecutorService executor;
+
+    private Compactor() {}
+
+    /**
+     * Starts compacting the storage of the given store.
+     * @param store a loaded store.
+     */
+    static synchronized void watch(ResidentStore store) {
+        stores.add(store);
+        if (executor != null) return;
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "swiftserve-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(Compactor::compactAll, INTERVAL_SECONDS, INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static void compactAll() {
+        for (ResidentStore store: stores) {
+            try {
+                store.compact();
+            } catch (Exception exception) {
+                System.out.println("[Compactor]: " + exception.getMessage());
+                exception.printStackTrace();
+            }
+        }
+    }
+}
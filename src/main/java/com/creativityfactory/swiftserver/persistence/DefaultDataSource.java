@@ -1,86 +1,176 @@
 package com.creativityfactory.swiftserver.persistence;
 
+import com.creativityfactory.swiftserver.model.ModelDescriptor;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import com.creativityfactory.swiftserver.utils.IOUtils;
 import com.creativityfactory.swiftserver.utils.IdUtils;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The DefaultDataSource class provides an API for persistence list objects of a class in JSON format, and also for reading and writing data.
  * It is a singleton class, and an instance can be obtained using the getInstance() method.
+ *
+ * <p>It is the {@link StorageEngine} of the default persistence. The entities of a model are stored in a snapshot,
+ * the "&lt;model&gt;.bin" file of a {@link BinarySnapshot}, followed by a {@link WriteAheadLog} of the inserts, updates and deletes written
+ * since the snapshot: a batch of writes only appends its records to the log, whatever the size of the collection. When the
+ * log grows past the compaction threshold, the {@link Compactor} writes a new snapshot and deletes the log it
+ * covers.</p>
+ *
+ * <p>On loading, the records of the log are replayed over the snapshot, the records interrupted by a crash are
+ * detected by their checksum and dropped. A record is applied as an upsert or a removal by id, so replaying a log
+ * which is already part of the snapshot, after a crash during a compaction, gives the same entities.</p>
+ *
+ * <p>The snapshots of the previous versions, "&lt;model&gt;.json" files holding a JSON array of the JSON documents
+ * of the entities, are converted to the binary snapshot when the model is first loaded, see {@link #convert(Class)}.
+ * The JSON file is then left as it is and no longer read.</p>
  */
-public class DefaultDataSource {
+public class DefaultDataSource implements StorageEngine {
+    static final long DEFAULT_COMPACTION_THRESHOLD = 1024 * 1024;
     private static DefaultDataSource instance;
 
     /**
      * Returns an instance of the DefaultDataSource class.
      * @return an instance of the DefaultDataSource class
      */
-    public static DefaultDataSource getInstance() {
-        if (instance == null) instance = new DefaultDataSource(new Gson());
+    public static synchronized DefaultDataSource getInstance() {
+        if (instance == null) instance = new DefaultDataSource(new Gson(), new File("."), DEFAULT_COMPACTION_THRESHOLD);
 
         return instance;
     }
 
     private final Gson gson;
+    private final File directory;
+    private final long compactionThreshold;
+    private final Map<Class<?>, WriteAheadLog> logs = new ConcurrentHashMap<>();
 
     /**
      * Constructs an instance of the DefaultDataSource class with the specified Gson object.
      * @param gson the Gson object to use for serialization and deserialization
+     * @param directory the directory of the files of the models
+     * @param compactionThreshold the size in bytes of the log of a model from which it is compacted
      */
-    private DefaultDataSource(Gson gson) {
+    DefaultDataSource(Gson gson, File directory, long compactionThreshold) {
         this.gson = gson;
+        this.directory = directory;
+        this.compactionThreshold = compactionThreshold;
     }
 
     /**
-     * Loads the data from the JSON file corresponding to the specified model class.
+     * Loads the data from the snapshot file corresponding to the specified model class, or from its JSON file if
+     * it has not been converted yet. Only the snapshot is read, the writes which are still in the log are not.
      *
      * @param model the model class for which data is to be loaded
-     * @return a list of objects of the specified model class, loaded from the corresponding JSON file
-     * @throws IOException if an I/O error occurs while reading the JSON file
+     * @return a list of objects of the specified model class, loaded from the corresponding snapshot file
+     * @throws IOException if an I/O error occurs while reading the snapshot file
      */
     public List<Object> loadDB(Class<?> model) throws IOException {
         try {
-            String db = IOUtils.readFile(model.getName() + ".json");
-
+            if (fileOf(model).exists()) return read(model);
+            return parse(IOUtils.readFile(jsonFileOf(model).getPath()), model);
+        } catch (IOException exception) {
+            exception.printStackTrace();
+        }
 
-            TypeToken<List<String>> mapType = new TypeToken<>(){};
-            List<String> list = gson.fromJson(db, mapType);
+        return new ArrayList<>();
+    }
 
-            List<Object> objectList = new ArrayList<>();
-            for (String str: list) {
-                objectList.add(gson.fromJson(IdUtils.mapObjectToId(str, model), model));
+    @Override
+    public List<Object> load(Class<?> model) throws IOException {
+        ModelDescriptor descriptor = ModelDescriptor.of(model);
+        Map<Object, Object> entities = new LinkedHashMap<>();
+
+        List<Object> snapshot;
+        if (fileOf(model).exists()) {
+            snapshot = read(model);
+        } else if (jsonFileOf(model).exists()) {
+            snapshot = convert(model);
+        } else {
+            snapshot = new ArrayList<>();
+        }
+        for (Object entity: snapshot) entities.put(keyOf(descriptor, entity), entity);
+
+        logOf(model).recover((type, payload) -> {
+            String json = new String(payload, StandardCharsets.UTF_8);
+            if (type == WriteAheadLog.DELETE) {
+                entities.remove(gson.fromJson(json, descriptor.idType()));
+            } else {
+                Object entity = decode(json, model);
+                entities.put(keyOf(descriptor, entity), entity);
             }
+        });
 
-            return objectList;
-        } catch (IOException exception) {
-            exception.printStackTrace();
+        return new ArrayList<>(entities.values());
+    }
+
+    @Override
+    public void write(Class<?> model, List<Mutation> mutations, boolean sync) throws IOException {
+        ByteBuffer[] records = new ByteBuffer[mutations.size()];
+        for (int i = 0; i < records.length; i++) {
+            Mutation mutation = mutations.get(i);
+            switch (mutation.type()) {
+                case INSERT:
+                    records[i] = WriteAheadLog.encode(WriteAheadLog.INSERT, encode(mutation.entity(), model));
+                    break;
+                case UPDATE:
+                    records[i] = WriteAheadLog.encode(WriteAheadLog.UPDATE, encode(mutation.entity(), model));
+                    break;
+                default:
+                    records[i] = WriteAheadLog.encode(WriteAheadLog.DELETE, gson.toJson(mutation.id()).getBytes(StandardCharsets.UTF_8));
+            }
         }
 
-        return new ArrayList<>();
+        logOf(model).append(records, sync);
+    }
+
+    @Override
+    public Checkpoint checkpoint(Class<?> model) throws IOException {
+        WriteAheadLog log = logOf(model);
+        if (log.size() < compactionThreshold) return null;
+
+        long covered = log.rotate();
+        return entities -> {
+            store(model, entities);
+            log.deleteUpTo(covered);
+        };
+    }
+
+    /**
+     * Converts the JSON file of a model, written by the previous versions, to its binary snapshot. The JSON file is
+     * left as it is.
+     *
+     * @param model the model class whose file is converted
+     * @return the entities of the converted file
+     * @throws IOException if the JSON file can not be read or if the snapshot can not be written
+     */
+    public List<Object> convert(Class<?> model) throws IOException {
+        File json = jsonFileOf(model);
+        List<Object> entities = parse(IOUtils.readFile(json.getPath()), model);
+        store(model, entities);
+        System.out.println("[DefaultDataSource]: converted " + json.getName() + " to " + fileOf(model).getName() + " (" + entities.size() + " entities)");
+
+        return entities;
     }
 
     /**
-     * Saves the specified list of objects to the JSON file corresponding to the specified model class.
+     * Saves the specified list of objects to the snapshot file corresponding to the specified model class. Only the
+     * snapshot is written, the writes which are still in the log are replayed over it on the next loading.
      *
      * @param list the list of objects to be saved
      * @param model the model class for which data is to be saved
-     * @return true if the data was successfully saved to the corresponding JSON file, false otherwise
+     * @return true if the data was successfully saved to the corresponding snapshot file, false otherwise
      */
     public boolean saveDB(List<Object> list, Class<?> model) {
         try {
-            List<String> db = new ArrayList<>();
-
-            for (Object obj: list) {
-                db.add(gson.toJson(IdUtils.mapIdToObject(obj, model)));
-            }
-
-
-            IOUtils.saveDataToFile(gson.toJson(db), model.getName() + ".json");
+            store(model, list);
             return true;
         } catch (Exception exception) {
             exception.printStackTrace();
@@ -88,4 +178,61 @@ public class DefaultDataSource {
 
         return false;
     }
+
+    private void store(Class<?> model, List<Object> entities) throws IOException {
+        BinarySnapshot snapshot = new BinarySnapshot(gson, model);
+        IOUtils.writeFileAtomically(fileOf(model).getPath(), stream -> snapshot.write(stream, entities));
+    }
+
+    private List<Object> read(Class<?> model) throws IOException {
+        try (InputStream stream = new BufferedInputStream(new FileInputStream(fileOf(model)), 64 * 1024)) {
+            return new BinarySnapshot(gson, model).read(stream);
+        }
+    }
+
+    // the JSON snapshots of the previous versions
+    private List<Object> parse(String db, Class<?> model) {
+        TypeToken<List<String>> mapType = new TypeToken<>(){};
+        List<String> list = gson.fromJson(db, mapType);
+
+        List<Object> objectList = new ArrayList<>();
+        if (list == null) return objectList;
+        for (String str: list) {
+            objectList.add(decode(str, model));
+        }
+
+        return objectList;
+    }
+
+    // an entity is stored as an element of the snapshot
+    private byte[] encode(Object entity, Class<?> model) {
+        return gson.toJson(IdUtils.mapIdToObject(entity, model)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Object decode(String json, Class<?> model) {
+        // the references are loaded as stubs, they are resolved when the entity is read
+        return gson.fromJson(IdUtils.mapObjectToId(json, model, false), model);
+    }
+
+    // an entity without id is kept under a key of its own
+    private static Object keyOf(ModelDescriptor descriptor, Object entity) throws IOException {
+        try {
+            Object id = descriptor.idOf(entity);
+            return (id == null)? new Object(): id;
+        } catch (IllegalAccessException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    private WriteAheadLog logOf(Class<?> model) {
+        return logs.computeIfAbsent(model, clazz -> new WriteAheadLog(directory, clazz.getName()));
+    }
+
+    private File fileOf(Class<?> model) {
+        return new File(directory, model.getName() + ".bin");
+    }
+
+    private File jsonFileOf(Class<?> model) {
+        return new File(directory, model.getName() + ".json");
+    }
 }
@@ -4,7 +4,6 @@ import com.creativityfactory.swiftserver.annotation.DataSource;
 import com.creativityfactory.swiftserver.annotation.Id;
 import com.creativityfactory.swiftserver.utils.IdUtils;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -17,18 +16,30 @@ import java.util.List;
  * each entity has an ID field annotated with the {@link Id} annotation. If the
  * ID field is not present, the first field in the entity will be used as the ID.</p>
  *
+ * <p>The entities are loaded from the {@link StorageEngine} on the first call and kept in memory by a
+ * {@link ResidentStore}: an entity is found by its id without reading the storage, and the storage is only
+ * written. The returned entities are shared, they must not be modified in place. The entities of a model with
+ * {@link com.creativityfactory.swiftserver.annotation.BelongTo} fields are copies whose referenced entities are
+ * read again on each call.</p>
  */
 public class DefaultPersistence implements Persistence<Object> {
-    private final Class<?> model;
-    private final DefaultDataSource api;
+    private final ResidentStore store;
     /**
-     * Constructs a new DefaultPersistence instance with the given model class and API.
+     * Constructs a new DefaultPersistence instance with the given model class and storage engine.
      * @param model the class of the model to be persisted.
-     * @param api the API to be used for persistence operations.
+     * @param engine the storage of the entities of the model.
      */
-    public DefaultPersistence(Class<?> model, DefaultDataSource api) {
-        this.model = model;
-        this.api = api;
+    public DefaultPersistence(Class<?> model, StorageEngine engine) {
+        this(model, engine, WriteOptions.DEFAULT);
+    }
+    /**
+     * Constructs a new DefaultPersistence instance with the given model class, storage engine and write options.
+     * @param model the class of the model to be persisted.
+     * @param engine the storage of the entities of the model.
+     * @param options the batching of the writes of the model.
+     */
+    public DefaultPersistence(Class<?> model, StorageEngine engine, WriteOptions options) {
+        this.store = new ResidentStore(model, engine, options);
     }
     /**
      * Returns a list of all objects of the specified model type.
@@ -37,7 +48,7 @@ public class DefaultPersistence implements Persistence<Object> {
     @Override
     public List<Object> getAll() {
         try {
-            return api.loadDB(model);
+            return store.list(-1);
         } catch (Exception exception) {
             exception.printStackTrace();
         }
@@ -53,13 +64,7 @@ public class DefaultPersistence implements Persistence<Object> {
     @Override
     public List<Object> getLimit(Integer limit) {
         try {
-            List<Object> objectList =  api.loadDB(model);
-            List<Object> list = new ArrayList<>();
-            int index = 0;
-            while (index < limit && index < objectList.size())
-                list.add(objectList.get(index++));
-
-            return list;
+            return store.list(Math.max(limit, 0));
         } catch (Exception exception) {
             exception.printStackTrace();
         }
@@ -74,12 +79,22 @@ public class DefaultPersistence implements Persistence<Object> {
     @Override
     public Object getById(Object id) {
         try {
-            List<Object> list = api.loadDB(model);
-            for (Object object: list) {
-                Object _id = IdUtils.extractIdValue(object);
-                if ((_id != null) && _id.equals(id)) return object;
-            };
+            return store.get(id);
+        } catch (Exception exception) {
+            exception.printStackTrace();
+        }
+        return null;
+    }
 
+    /**
+     * Returns the object with the specified ID as it is stored, without resolving its references.
+     *
+     * @param id the ID of the object to be returned.
+     * @return the stored object, or null if it does not exist.
+     */
+    Object getStored(Object id) {
+        try {
+            return store.stored(id);
         } catch (Exception exception) {
             exception.printStackTrace();
         }
@@ -95,15 +110,7 @@ public class DefaultPersistence implements Persistence<Object> {
     @Override
     public Object save(Object o) {
         try {
-            Object id = IdUtils.extractIdValue(o);
-            List<Object> list = api.loadDB(model);
-            for (Object o1: list) {
-                Object _id = IdUtils.extractIdValue(o1);
-                if ((_id != null) && (_id.equals(id))) return null;
-            }
-
-            list.add(o);
-            if (api.saveDB(list, model)) return o;
+            if (store.insert(o)) return o;
         } catch (Exception exception) {
             exception.printStackTrace();
         }
@@ -118,17 +125,7 @@ public class DefaultPersistence implements Persistence<Object> {
     @Override
     public Object update(Object o) {
         try {
-            Object id = IdUtils.extractIdValue(o);
-            List<Object> list = api.loadDB(model);
-            for (Object o1: list) {
-                Object _id = IdUtils.extractIdValue(o1);
-                if ((_id != null) && (_id.equals(id))) {
-                    list.remove(o1);
-                    list.add(o);
-
-                    return api.saveDB(list, model)? o: null;
-                }
-            }
+            if (store.replace(o)) return o;
         } catch (Exception exception) {
             exception.printStackTrace();
         }
@@ -143,17 +140,7 @@ public class DefaultPersistence implements Persistence<Object> {
     @Override
     public Object delete(Object o) {
         try {
-            Object id = IdUtils.extractIdValue(o);
-            List<Object> list = api.loadDB(model);
-            for (Object o1: list) {
-                Object _id = IdUtils.extractIdValue(o1);
-                if ((_id != null) && (_id.equals(id))) {
-                    list.remove(o1);
-                    api.saveDB(list, model);
-
-                    return o1;
-                }
-            }
+            return store.remove(IdUtils.extractIdValue(o));
         } catch (Exception exception) {
             exception.printStackTrace();
         }
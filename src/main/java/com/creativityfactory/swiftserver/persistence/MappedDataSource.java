@@ -0,0 +1,227 @@
+package com.creativityfactory.swiftserver.persistence;
+
+import com.creativityfactory.swiftserver.model.ModelDescriptor;
+import com.creativityfactory.swiftserver.utils.IdUtils;
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>A {@link StorageEngine} for the large collections, which reads the entities in place from a memory mapped
+ * file instead of parsing the whole collection in the heap. The entities of a model are stored in the
+ * "&lt;model&gt;.records" file, a {@link RecordFile} to which every batch of writes appends one record per write:</p>
+ * <pre>
+ * [id length: unsigned short][id: JSON][entity: JSON, empty for a removal]
+ * </pre>
+ *
+ * <p>On loading, only the ids of the records are read, to build the index of the last record of every entity, and
+ * the loaded {@link StoredRecord}s decode their entity from the mapping when it is read. When the records which are
+ * replaced or removed take more space than the current ones, the file is rewritten with the current records only
+ * before being indexed.</p>
+ *
+ * <p>It is used by the default persistence when the "swiftserve.storage.engine" setting is "mapped".</p>
+ */
+public class MappedDataSource implements StorageEngine {
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    private static MappedDataSource instance;
+
+    /**
+     * Returns an instance of the MappedDataSource class.
+     * @return an instance of the MappedDataSource class
+     */
+    public static synchronized MappedDataSource getInstance() {
+        if (instance == null) instance = new MappedDataSource(new Gson(), new File("."));
+
+        return instance;
+    }
+
+    private final Gson gson;
+    private final File directory;
+    private final Map<Class<?>, RecordFile> files = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs an instance of the MappedDataSource class.
+     * @param gson the Gson object to use for serialization and deserialization
+     * @param directory the directory of the files of the models
+     */
+    MappedDataSource(Gson gson, File directory) {
+        this.gson = gson;
+        this.directory = directory;
+    }
+
+    @Override
+    public List<Object> load(Class<?> model) throws IOException {
+        RecordFile records = recordsOf(model);
+        Map<Object, Entry> index = index(records, model);
+
+        long live = 0;
+        for (Entry entry: index.values()) live += entry.size;
+        if (records.size() - live > live && records.size() > RecordFile.PAGE_SIZE) {
+            records = rewrite(model, records, index);
+            index = index(records, model);
+        }
+
+        List<Object> loaded = new ArrayList<>(index.size());
+        for (Entry entry: index.values()) loaded.add(new MappedRecord(records, model, entry.id, entry.offset));
+
+        return loaded;
+    }
+
+    @Override
+    public void write(Class<?> model, List<Mutation> mutations, boolean sync) throws IOException {
+        byte[] types = new byte[mutations.size()];
+        List<byte[]> contents = new ArrayList<>(mutations.size());
+        for (int i = 0; i < types.length; i++) {
+            Mutation mutation = mutations.get(i);
+            boolean delete = mutation.type() == Mutation.Type.DELETE;
+            types[i] = delete? DELETE: PUT;
+            contents.add(encode(mutation.id(), delete? null: gson.toJson(IdUtils.mapIdToObject(mutation.entity(), model))));
+        }
+
+        recordsOf(model).append(types, contents, sync);
+    }
+
+    /**
+     * Encodes the content of a record.
+     * @param id the id of the entity.
+     * @param json the stored entity, or null for a removal.
+     * @return the content of the record.
+     * @throws IOException if the id is too long.
+     */
+    byte[] encode(Object id, String json) throws IOException {
+        byte[] idBytes = gson.toJson(id).getBytes(StandardCharsets.UTF_8);
+        if (idBytes.length > 0xFFFF) throw new IOException("An id of " + idBytes.length + " bytes is too long");
+        byte[] entityBytes = (json == null)? new byte[0]: json.getBytes(StandardCharsets.UTF_8);
+
+        return ByteBuffer.allocate(2 + idBytes.length + entityBytes.length)
+                .putShort((short) idBytes.length)
+                .put(idBytes)
+                .put(entityBytes)
+                .array();
+    }
+
+    // the last record of every entity, in the order of the entities
+    private Map<Object, Entry> index(RecordFile records, Class<?> model) throws IOException {
+        ModelDescriptor descriptor = ModelDescriptor.of(model);
+        Map<Object, Entry> index = new LinkedHashMap<>();
+
+        records.scan((offset, type, content) -> {
+            int size = RecordFile.recordSize(content.remaining());
+            byte[] idBytes = new byte[content.getShort() & 0xFFFF];
+            content.get(idBytes);
+            Object id = (descriptor.idType() == null)? null: gson.fromJson(new String(idBytes, StandardCharsets.UTF_8), descriptor.idType());
+
+            if (type == DELETE) {
+                index.remove(id);
+            } else if (id == null) {
+                // an entity without id is kept under a key of its own
+                index.put(new Object(), new Entry(null, offset, size));
+            } else {
+                index.put(id, new Entry(id, offset, size));
+            }
+        });
+
+        return index;
+    }
+
+    // copies the current records to a new file which replaces the records file
+    private RecordFile rewrite(Class<?> model, RecordFile records, Map<Object, Entry> index) throws IOException {
+        File file = records.file();
+        File temp = new File(directory, file.getName() + ".tmp");
+        Files.deleteIfExists(temp.toPath());
+
+        RecordFile compacted = new RecordFile(temp);
+        try {
+            for (Entry entry: index.values()) {
+                ByteBuffer content = records.read(entry.offset);
+                byte[] bytes = new byte[content.remaining()];
+                content.get(bytes);
+                compacted.append(new byte[] {PUT}, List.of(bytes), false);
+            }
+            compacted.force();
+        } finally {
+            compacted.close();
+        }
+
+        records.close();
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("[MappedDataSource]: compacted " + file.getName() + " from " + records.size() + " to " + compacted.size() + " bytes");
+
+        RecordFile reopened = new RecordFile(file);
+        files.put(model, reopened);
+        return reopened;
+    }
+
+    private Object decode(String json, Class<?> model) {
+        // the references are loaded as stubs, they are resolved when the entity is read
+        return gson.fromJson(IdUtils.mapObjectToId(json, model, false), model);
+    }
+
+    private RecordFile recordsOf(Class<?> model) throws IOException {
+        RecordFile records = files.get(model);
+        if (records != null) return records;
+
+        synchronized (files) {
+            records = files.get(model);
+            if (records == null) {
+                records = new RecordFile(new File(directory, model.getName() + ".records"));
+                files.put(model, records);
+            }
+        }
+
+        return records;
+    }
+
+    private static final class Entry {
+        private final Object id;
+        private final long offset;
+        private final int size;
+
+        private Entry(Object id, long offset, int size) {
+            this.id = id;
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+
+    // an entity read from the mapping of its record
+    private final class MappedRecord implements StoredRecord {
+        private final RecordFile records;
+        private final Class<?> model;
+        private final Object id;
+        private final long offset;
+
+        private MappedRecord(RecordFile records, Class<?> model, Object id, long offset) {
+            this.records = records;
+            this.model = model;
+            this.id = id;
+            this.offset = offset;
+        }
+
+        @Override
+        public Object id() {
+            return id;
+        }
+
+        @Override
+        public Object decode() throws IOException {
+            ByteBuffer content = records.read(offset);
+            content.position(2 + (content.getShort() & 0xFFFF));
+            byte[] json = new byte[content.remaining()];
+            content.get(json);
+
+            return MappedDataSource.this.decode(new String(json, StandardCharsets.UTF_8), model);
+        }
+    }
+}
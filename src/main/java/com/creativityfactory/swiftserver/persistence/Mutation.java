@@ -0,0 +1,70 @@
+package com.creativityfactory.swiftserver.persistence;
+
+/**
+ * A write of an entity of a model, as it is given to a {@link StorageEngine}.
+ */
+public final class Mutation {
+    /**
+     * The kinds of writes.
+     */
+    public enum Type {
+        INSERT,
+        UPDATE,
+        DELETE
+    }
+
+    private final Type type;
+    private final Object id;
+    private final Object entity;
+
+    private Mutation(Type type, Object id, Object entity) {
+        this.type = type;
+        this.id = id;
+        this.entity = entity;
+    }
+
+    /**
+     * Creates the insert of a new entity.
+     * @param id the id of the entity, may be null.
+     * @param entity the new entity.
+     * @return the mutation.
+     */
+    public static Mutation insert(Object id, Object entity) {
+        return new Mutation(Type.INSERT, id, entity);
+    }
+
+    /**
+     * Creates the replacement of an entity.
+     * @param id the id of the entity.
+     * @param entity the new version of the entity.
+     * @return the mutation.
+     */
+    public static Mutation update(Object id, Object entity) {
+        return new Mutation(Type.UPDATE, id, entity);
+    }
+
+    /**
+     * Creates the removal of an entity.
+     * @param id the id of the removed entity.
+     * @return the mutation.
+     */
+    public static Mutation delete(Object id) {
+        return new Mutation(Type.DELETE, id, null);
+    }
+
+    public Type type() {
+        return type;
+    }
+
+    public Object id() {
+        return id;
+    }
+
+    /**
+     * Returns the written entity.
+     * @return the entity, or null for a removal.
+     */
+    public Object entity() {
+        return entity;
+    }
+}
@@ -0,0 +1,212 @@
+package com.creativityfactory.swiftserver.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * <p>A file of records read through memory mappings. The file is split in pages of {@link #PAGE_SIZE} bytes and a
+ * record never crosses a page: when it does not fit in the rest of a page, the rest is filled with zeros and the
+ * record starts on the next page. The file is mapped by chunks of whole pages, so every record is read from a
+ * single mapping without copying the file into the heap. A record is framed as:</p>
+ * <pre>
+ * [length: int][crc32: int][type: byte][content: length - 1 bytes]
+ * </pre>
+ * <p>where a zero length marks the padding of a page. The records are appended with the positional writes of the
+ * channel, and the mappings are extended when a record beyond them is read.</p>
+ */
+final class RecordFile {
+    static final int PAGE_SIZE = 1 << 20;
+    static final int HEADER_SIZE = 8;
+    private static final long CHUNK_SIZE = 256L * PAGE_SIZE;
+
+    private final File file;
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+    private volatile long size;
+
+    /**
+     * Visits the records of the file.
+     */
+    interface Visitor {
+        /**
+         * @param offset the position of the record in the file.
+         * @param type the type of the record.
+         * @param content the content of the record, positioned at its first byte.
+         */
+        void visit(long offset, byte type, ByteBuffer content) throws IOException;
+    }
+
+    RecordFile(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.size = channel.size();
+    }
+
+    File file() {
+        return file;
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of bytes a record takes in the file, without the padding before it.
+     * @param contentLength the length of the content of the record.
+     * @return the size of the record.
+     */
+    static int recordSize(int contentLength) {
+        return HEADER_SIZE + 1 + contentLength;
+    }
+
+    /**
+     * Visits all the records in order. The file is truncated before the first record which is incomplete or
+     * whose checksum does not match, it is the last write of a crash.
+     *
+     * @param visitor called for every valid record.
+     * @throws IOException if the file can not be read.
+     */
+    synchronized void scan(Visitor visitor) throws IOException {
+        long position = 0;
+        while (position < size) {
+            long space = PAGE_SIZE - (position % PAGE_SIZE);
+            if (space < HEADER_SIZE + 1) {
+                position += space;
+                continue;
+            }
+
+            ByteBuffer page = mapping(position, Math.min(space, size - position));
+            if (page.remaining() < HEADER_SIZE + 1) break;
+            int length = page.getInt();
+            // the padding of the end of the page
+            if (length == 0) {
+                position += space;
+                continue;
+            }
+            if (length < 1 || HEADER_SIZE + (long) length > page.limit()) break;
+
+            int checksum = page.getInt();
+            ByteBuffer content = page.slice();
+            content.limit(length);
+            if (checksum != checksum(content)) break;
+
+            byte type = content.get();
+            visitor.visit(position, type, content.slice());
+            position += HEADER_SIZE + length;
+        }
+
+        if (position < size) {
+            System.out.println("[RecordFile]: truncating " + file.getName() + " at " + position + " of " + size + " bytes");
+            channel.truncate(position);
+            channel.force(true);
+            size = position;
+            chunks.clear();
+        }
+    }
+
+    /**
+     * Appends records with a single write, then flushes them to the disk if asked.
+     *
+     * @param types the types of the records.
+     * @param contents the contents of the records.
+     * @param sync whether the records are flushed to the disk.
+     * @return the offsets of the records in the file.
+     * @throws IOException if a record is larger than a page or if the records can not be written.
+     */
+    synchronized long[] append(byte[] types, List<byte[]> contents, boolean sync) throws IOException {
+        long start = size;
+        long position = start;
+        long[] offsets = new long[contents.size()];
+        for (int i = 0; i < offsets.length; i++) {
+            int record = recordSize(contents.get(i).length);
+            if (record > PAGE_SIZE) throw new IOException("A record of " + record + " bytes is larger than a page");
+
+            long space = PAGE_SIZE - (position % PAGE_SIZE);
+            if (record > space) position += space;
+            offsets[i] = position;
+            position += record;
+        }
+
+        ByteBuffer batch = ByteBuffer.allocate((int) (position - start));
+        for (int i = 0; i < offsets.length; i++) {
+            byte[] content = contents.get(i);
+            batch.position((int) (offsets[i] - start));
+            CRC32 crc = new CRC32();
+            crc.update(types[i]);
+            crc.update(content);
+            batch.putInt(content.length + 1).putInt((int) crc.getValue()).put(types[i]).put(content);
+        }
+        batch.clear();
+
+        long written = start;
+        while (batch.hasRemaining()) written += channel.write(batch, written);
+        if (sync) channel.force(false);
+        size = position;
+
+        return offsets;
+    }
+
+    /**
+     * Reads a record from the mapping of the file.
+     *
+     * @param offset the position of the record.
+     * @return the content of the record without its type, it is a view on the mapping.
+     * @throws IOException if the record is corrupted.
+     */
+    ByteBuffer read(long offset) throws IOException {
+        ByteBuffer page = mapping(offset, Math.min(PAGE_SIZE - (offset % PAGE_SIZE), size - offset));
+        int length = page.getInt();
+        int checksum = page.getInt();
+        if (length < 1 || HEADER_SIZE + (long) length > page.limit()) throw new IOException("Invalid record at " + offset + " of " + file.getName());
+
+        ByteBuffer content = page.slice();
+        content.limit(length);
+        if (checksum != checksum(content)) throw new IOException("Corrupted record at " + offset + " of " + file.getName());
+
+        content.position(1);
+        return content.slice();
+    }
+
+    synchronized void force() throws IOException {
+        channel.force(false);
+    }
+
+    synchronized void close() throws IOException {
+        chunks.clear();
+        channel.close();
+    }
+
+    private static int checksum(ByteBuffer content) {
+        CRC32 crc = new CRC32();
+        crc.update(content.duplicate());
+        return (int) crc.getValue();
+    }
+
+    // a view on the mapping of the given bytes, which never cross a chunk since they never cross a page
+    private ByteBuffer mapping(long position, long length) throws IOException {
+        int index = (int) (position / CHUNK_SIZE);
+        long chunkStart = index * CHUNK_SIZE;
+        MappedByteBuffer chunk;
+        synchronized (chunks) {
+            while (chunks.size() <= index) chunks.add(null);
+            chunk = chunks.get(index);
+            if (chunk == null || chunk.capacity() < position + length - chunkStart) {
+                // the chunk is mapped up to the end of the file, and mapped again when the file grows
+                chunk = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, Math.min(CHUNK_SIZE, size - chunkStart));
+                chunks.set(index, chunk);
+            }
+        }
+
+        ByteBuffer view = chunk.duplicate();
+        view.position((int) (position - chunkStart));
+        view.limit((int) (position - chunkStart + length));
+        return view.slice();
+    }
+}
@@ -0,0 +1,132 @@
+package com.creativityfactory.swiftserver.persistence;
+
+import com.creativityfactory.swiftserver.annotation.BelongTo;
+import com.creativityfactory.swiftserver.model.ModelDescriptor;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>The {@link BelongTo} fields of a model using the default persistence. A reference is stored by the id of the
+ * referenced entity, and it is loaded as a stub: a new instance of the referenced model holding only this id, so
+ * the loading of a model never reads another model.</p>
+ *
+ * <p>The references are resolved each time an entity is read: the entity is copied and every reference of the copy
+ * is replaced by the entity its data source currently holds for the id, or null if it has been removed. A
+ * referenced entity of the default persistence is given as it is stored, its own references are not resolved, so
+ * two models referencing each other are resolved once.</p>
+ */
+final class References {
+    private static final Gson gson = new Gson();
+    private static final Map<Class<?>, References> references = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the references of the given model.
+     * @param model the class of the model.
+     * @return the references of the model.
+     */
+    static References of(Class<?> model) {
+        return references.computeIfAbsent(model, References::new);
+    }
+
+    private final Class<?> model;
+    private final List<Field> belongTo = new ArrayList<>();
+    // the fields of the model and of its super classes, which are copied
+    private final List<Field> fields = new ArrayList<>();
+
+    private References(Class<?> model) {
+        this.model = model;
+        for (Class<?> type = model; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field: type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) continue;
+                field.setAccessible(true);
+                fields.add(field);
+                if (type == model && field.isAnnotationPresent(BelongTo.class)) belongTo.add(field);
+            }
+        }
+        if (belongTo.isEmpty()) fields.clear();
+    }
+
+    /**
+     * Creates the stub of a referenced entity.
+     *
+     * @param type the referenced model.
+     * @param id the id of the referenced entity.
+     * @return a new instance of the model holding only the id, or null if the id is null.
+     * @throws IOException if the instance can not be created.
+     */
+    static Object stub(Class<?> type, Object id) throws IOException {
+        if (id == null) return null;
+
+        ModelDescriptor descriptor = ModelDescriptor.of(type);
+        try {
+            Object stub = newInstance(type);
+            descriptor.idField().set(stub, id);
+            return stub;
+        } catch (ReflectiveOperationException | IllegalArgumentException exception) {
+            throw new IOException("Can not reference the " + type.getName() + " " + id, exception);
+        }
+    }
+
+    /**
+     * Returns the entity with its references resolved.
+     *
+     * @param entity a stored entity, it is not modified.
+     * @return a copy of the entity whose references are the current referenced entities, or the entity itself if
+     * its model has no reference.
+     * @throws IOException if the entity can not be copied.
+     */
+    Object resolve(Object entity) throws IOException {
+        if (entity == null || belongTo.isEmpty()) return entity;
+
+        try {
+            Object copy = newInstance(model);
+            for (Field field: fields) field.set(copy, field.get(entity));
+            for (Field field: belongTo) {
+                Object reference = field.get(entity);
+                if (reference != null) field.set(copy, current(field, reference));
+            }
+
+            return copy;
+        } catch (ReflectiveOperationException exception) {
+            throw new IOException("Can not copy an entity of " + model.getName(), exception);
+        }
+    }
+
+    // the entity the data source of the field holds for the id of the reference
+    private Object current(Field field, Object reference) {
+        Object id = null;
+        try {
+            id = ModelDescriptor.of(field.getType()).idOf(reference);
+            Persistence<Object> persistence = SingletonDataSource.getInstance(field.getType());
+            if (persistence instanceof DefaultPersistence) return ((DefaultPersistence) persistence).getStored(id);
+
+            return persistence.getById(id);
+        } catch (Exception exception) {
+            System.out.println("[References]: can not resolve the " + field.getType().getName() + " " + id + " of the field " + field.getName() + " of " + model.getName());
+            exception.printStackTrace();
+        }
+
+        return reference;
+    }
+
+    private static Object newInstance(Class<?> type) throws ReflectiveOperationException {
+        Constructor<?> constructor;
+        try {
+            constructor = type.getDeclaredConstructor();
+        } catch (NoSuchMethodException exception) {
+            // a model without a constructor without arguments is created the way Gson does
+            return gson.fromJson("{}", type);
+        }
+        constructor.setAccessible(true);
+
+        return constructor.newInstance();
+    }
+}
@@ -0,0 +1,252 @@
+package com.creativityfactory.swiftserver.persistence;
+
+import com.creativityfactory.swiftserver.model.ModelDescriptor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * <p>The entities of a model kept in memory, loaded once from a {@link StorageEngine}. An entity is found by its
+ * id in a concurrent hash map, and the entities are listed in their order of insertion from a concurrent sorted
+ * map of their insertion sequence, so the reads never wait for a write nor touch the storage.</p>
+ *
+ * <p>The writes go through the {@link WritePipeline} of the store, which applies the concurrent writes in batches
+ * from a single thread: a batch is stored by the engine first, with one flush, and it is published in memory only
+ * when it is durable. An updated entity keeps its position, a saved entity is appended. The entities are shared by
+ * all the readers, they must not be modified in place.</p>
+ *
+ * <p>The {@link References} of the model are loaded as stubs and resolved on each read, the entities are then
+ * copies holding the current referenced entities.</p>
+ *
+ * <p>When the engine loads {@link StoredRecord}s, a slot keeps the record instead of the entity and the entity is
+ * decoded from the storage on each read, so the collection is not held in the heap. A written entity stays in its
+ * slot until the next loading.</p>
+ *
+ * <p>Once loaded, the store is compacted in the background by the {@link Compactor}: the entities are taken while
+ * no write runs, and written by the checkpoint of the engine without blocking the writes.</p>
+ */
+class ResidentStore {
+    // marks an entity removed by a write of the current batch
+    private static final Object REMOVED = new Object();
+
+    private final Class<?> model;
+    private final ModelDescriptor descriptor;
+    private final StorageEngine engine;
+    private final References references;
+    private final Map<Object, Slot> byId = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Slot> ordered = new ConcurrentSkipListMap<>();
+    private final WriteOptions options;
+    private final WritePipeline pipeline;
+    private long sequence;
+    private volatile boolean loaded;
+
+    ResidentStore(Class<?> model, StorageEngine engine, WriteOptions options) {
+        this.model = model;
+        this.descriptor = ModelDescriptor.of(model);
+        this.engine = engine;
+        this.references = References.of(model);
+        this.options = options;
+        this.pipeline = new WritePipeline(model.getSimpleName(), options, this::apply);
+    }
+
+    /**
+     * Returns the entities in their order.
+     * @param limit the maximum number of entities, or a negative number for all of them.
+     * @return a new list of the entities.
+     */
+    List<Object> list(int limit) throws IOException {
+        ensureLoaded();
+
+        List<Object> list = new ArrayList<>((limit < 0)? ordered.size(): Math.min(limit, ordered.size()));
+        for (Slot slot: ordered.values()) {
+            if (limit >= 0 && list.size() >= limit) break;
+            list.add(references.resolve(entityOf(slot.value)));
+        }
+
+        return list;
+    }
+
+    /**
+     * Returns the entity with the given id.
+     * @param id the id of the entity.
+     * @return the entity, or null if there is no entity with this id.
+     */
+    Object get(Object id) throws IOException {
+        return references.resolve(stored(id));
+    }
+
+    /**
+     * Returns the entity with the given id as it is stored, without resolving its references.
+     * @param id the id of the entity.
+     * @return the entity, or null if there is no entity with this id.
+     */
+    Object stored(Object id) throws IOException {
+        ensureLoaded();
+        if (id == null) return null;
+
+        Slot slot = byId.get(id);
+        return (slot == null)? null: entityOf(slot.value);
+    }
+
+    /**
+     * Appends an entity, unless an entity with the same id exists.
+     * @param entity the new entity.
+     * @return true if the entity has been saved.
+     */
+    boolean insert(Object entity) throws Exception {
+        ensureLoaded();
+
+        return (Boolean) pipeline.submit(Mutation.insert(descriptor.idOf(entity), entity));
+    }
+
+    /**
+     * Replaces the entity with the same id.
+     * @param entity the new version of the entity.
+     * @return true if the entity has been replaced.
+     */
+    boolean replace(Object entity) throws Exception {
+        ensureLoaded();
+        Object id = descriptor.idOf(entity);
+        if (id == null) return false;
+
+        return (Boolean) pipeline.submit(Mutation.update(id, entity));
+    }
+
+    /**
+     * Removes the entity with the given id.
+     * @param id the id of the entity.
+     * @return the removed entity, or null if there is no entity with this id.
+     */
+    Object remove(Object id) throws Exception {
+        ensureLoaded();
+        if (id == null) return null;
+
+        // the references are resolved outside the lock of the store
+        return references.resolve(pipeline.submit(Mutation.delete(id)));
+    }
+
+    /**
+     * Applies a batch of writes from the thread of the pipeline: the writes are checked in order, against the
+     * entities and the previous writes of the batch, then the valid ones are stored together and published.
+     */
+    private synchronized void apply(List<WritePipeline.Pending> batch) throws Exception {
+        ensureLoaded();
+        // the entities written by the accepted writes of this batch, by id
+        Map<Object, Object> written = new HashMap<>();
+        List<Mutation> mutations = new ArrayList<>(batch.size());
+        List<WritePipeline.Pending> accepted = new ArrayList<>(batch.size());
+        List<Object> results = new ArrayList<>(batch.size());
+
+        for (WritePipeline.Pending pending: batch) {
+            Mutation mutation = pending.mutation;
+            Object current = (mutation.id() == null)? null: current(written, mutation.id());
+            boolean valid = (mutation.type() == Mutation.Type.INSERT)? current == null: current != null;
+            if (!valid) {
+                pending.result.complete((mutation.type() == Mutation.Type.DELETE)? null: Boolean.FALSE);
+                continue;
+            }
+
+            if (mutation.id() != null) written.put(mutation.id(), (mutation.type() == Mutation.Type.DELETE)? REMOVED: mutation.entity());
+            mutations.add(mutation);
+            accepted.add(pending);
+            results.add((mutation.type() == Mutation.Type.DELETE)? entityOf(current): Boolean.TRUE);
+        }
+        if (mutations.isEmpty()) return;
+
+        engine.write(model, mutations, options.fsync());
+
+        for (Mutation mutation: mutations) publish(mutation);
+        for (int i = 0; i < accepted.size(); i++) accepted.get(i).result.complete(results.get(i));
+    }
+
+    private Object current(Map<Object, Object> written, Object id) {
+        if (written.containsKey(id)) {
+            Object entity = written.get(id);
+            return (entity == REMOVED)? null: entity;
+        }
+
+        Slot slot = byId.get(id);
+        return (slot == null)? null: slot.value;
+    }
+
+    // called while holding the lock of this store
+    private void publish(Mutation mutation) {
+        switch (mutation.type()) {
+            case INSERT:
+                add(mutation.id(), mutation.entity());
+                break;
+            case UPDATE:
+                byId.get(mutation.id()).value = mutation.entity();
+                break;
+            case DELETE:
+                Slot slot = byId.remove(mutation.id());
+                ordered.remove(slot.sequence);
+                break;
+        }
+    }
+
+    private void ensureLoaded() throws IOException {
+        if (loaded) return;
+
+        synchronized (this) {
+            if (loaded) return;
+
+            for (Object entity: engine.load(model)) {
+                try {
+                    add((entity instanceof StoredRecord)? ((StoredRecord) entity).id(): descriptor.idOf(entity), entity);
+                } catch (IllegalAccessException exception) {
+                    throw new IOException(exception);
+                }
+            }
+            loaded = true;
+        }
+        Compactor.watch(this);
+    }
+
+    /**
+     * Compacts the storage of this store if the engine needs it.
+     * @throws IOException if the compaction fails, the storage is then unchanged.
+     */
+    void compact() throws IOException {
+        List<Object> entities;
+        StorageEngine.Checkpoint checkpoint;
+        synchronized (this) {
+            if (!loaded) return;
+
+            checkpoint = engine.checkpoint(model);
+            if (checkpoint == null) return;
+            entities = new ArrayList<>(ordered.size());
+            for (Slot slot: ordered.values()) entities.add(slot.value);
+        }
+
+        checkpoint.write(entities);
+    }
+
+    // called while holding the lock of this store
+    private void add(Object id, Object value) {
+        Slot slot = new Slot(sequence++, value);
+        ordered.put(slot.sequence, slot);
+        // an entity without id is only listed
+        if (id != null) byId.putIfAbsent(id, slot);
+    }
+
+    private static Object entityOf(Object value) throws IOException {
+        return (value instanceof StoredRecord)? ((StoredRecord) value).decode(): value;
+    }
+
+    private static final class Slot {
+        private final long sequence;
+        // the entity, or its record in the storage
+        private volatile Object value;
+
+        private Slot(long sequence, Object value) {
+            this.sequence = sequence;
+            this.value = value;
+        }
+    }
+}
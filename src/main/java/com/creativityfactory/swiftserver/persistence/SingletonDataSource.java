@@ -5,14 +5,28 @@ import com.creativityfactory.swiftserver.annotation.FromDataSource;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class is responsible for creating instance of datasource following the pattern Singleton.
+ * The persistence object of a model using the default data source is also created only once.
  */
 public class SingletonDataSource {
     private static Map<String, Class<? extends Persistence<?>>> dataSourceClassesMap = new HashMap<>();
-    private static final Map<String, Persistence<Object>> instances = new HashMap<>();
-    private static final Map<String, Persistence<Object>> dfDataSrcInstances = new HashMap<>();
+    private static final Map<String, Persistence<Object>> instances = new ConcurrentHashMap<>();
+    private static final Map<String, Persistence<Object>> dfDataSrcInstances = new ConcurrentHashMap<>();
+    private static volatile StorageEngine storageEngine;
+    private static volatile WriteOptions writeOptions = WriteOptions.DEFAULT;
+
+    /**
+     * Sets the storage and the write options of the persistence objects of the default data source created from now.
+     * @param engine the storage of the entities, or null for the {@link DefaultDataSource}.
+     * @param options the batching of the writes.
+     */
+    public static void configure(StorageEngine engine, WriteOptions options) {
+        storageEngine = engine;
+        writeOptions = options;
+    }
 
     /**
      * This class initialize the creation of single instance for each identify, which it will be used later
@@ -47,16 +61,21 @@ public class SingletonDataSource {
             throw new IllegalArgumentException("Can not get instance of datasource for a model does not annotated with FromDataSource");
         String fromDataSource = model.getAnnotation(FromDataSource.class).value();
         if (fromDataSource.isEmpty()) {
-            dfDataSrcInstances.put(model.getName(), new DefaultPersistence(model, DefaultDataSource.getInstance()));
-
-            return dfDataSrcInstances.get(model.getName());
+            return dfDataSrcInstances.computeIfAbsent(model.getName(), name -> new DefaultPersistence(model, (storageEngine == null)? DefaultDataSource.getInstance(): storageEngine, writeOptions));
         }
 
-        if (instances.get(fromDataSource) == null) {
-            Class<? extends Persistence<?>> dataSourceClass = dataSourceClassesMap.get(fromDataSource);
-            instances.put(fromDataSource, (Persistence<Object>) dataSourceClass.newInstance());
+        Persistence<Object> instance = instances.get(fromDataSource);
+        if (instance == null) {
+            synchronized (instances) {
+                instance = instances.get(fromDataSource);
+                if (instance == null) {
+                    Class<? extends Persistence<?>> dataSourceClass = dataSourceClassesMap.get(fromDataSource);
+                    instance = (Persistence<Object>) dataSourceClass.newInstance();
+                    instances.put(fromDataSource, instance);
+                }
+            }
         }
 
-        return instances.get(fromDataSource);
+        return instance;
     }
 }
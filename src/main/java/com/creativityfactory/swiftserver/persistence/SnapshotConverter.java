@@ -0,0 +1,26 @@
+package com.creativityfactory.swiftserver.persistence;
+
+import com.google.gson.Gson;
+
+import java.io.File;
+
+/**
+ * <p>Converts the JSON files of the default data source to binary snapshots, without starting the application:</p>
+ * <pre>
+ * java -cp &lt;classpath&gt; com.creativityfactory.swiftserver.persistence.SnapshotConverter &lt;directory&gt; &lt;model class&gt;...
+ * </pre>
+ * <p>The models are otherwise converted when they are first loaded, see {@link DefaultDataSource#convert(Class)}.</p>
+ */
+public class SnapshotConverter {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: SnapshotConverter <directory> <model class>...");
+            System.exit(1);
+        }
+
+        DefaultDataSource dataSource = new DefaultDataSource(new Gson(), new File(args[0]), DefaultDataSource.DEFAULT_COMPACTION_THRESHOLD);
+        for (int i = 1; i < args.length; i++) {
+            dataSource.convert(Class.forName(args[i]));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.creativityfactory.swiftserver.persistence;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * <p>The storage of the entities of the models using the default data source. The entities of a model are read
+ * from the storage once, when its {@link DefaultPersistence} is first used, then they are served from memory:
+ * the storage is only written, by batches of {@link Mutation}s.</p>
+ *
+ * <p>A batch must be durable when it is stored, the entities are published in memory only after it. The
+ * batches of a model are never concurrent.</p>
+ */
+public interface StorageEngine {
+    /**
+     * Reads all the stored entities of a model. An engine which reads its entities in place may return
+     * {@link StoredRecord}s instead of entities, they are then decoded on each read.
+     *
+     * @param model the class of the model.
+     * @return the entities or records of the model in their order, an empty list if nothing is stored.
+     * @throws IOException if the storage can not be read.
+     */
+    List<Object> load(Class<?> model) throws IOException;
+
+    /**
+     * Stores a batch of writes, the storage is flushed once for the whole batch.
+     *
+     * @param model the class of the model.
+     * @param mutations the writes in their order, they have been validated against the stored entities.
+     * @param sync whether the writes must be flushed to the disk before returning, otherwise they only have to be
+     *             handed to the operating system.
+     * @throws IOException if the writes can not be stored, none of them is then published.
+     */
+    void write(Class<?> model, List<Mutation> mutations, boolean sync) throws IOException;
+
+    /**
+     * Starts a compaction of the storage of a model if it needs one. It is called while no write of the model
+     * runs, the returned checkpoint is written after, concurrently with the next writes.
+     *
+     * @param model the class of the model.
+     * @return the checkpoint to write with the current entities, or null if the storage does not need a compaction.
+     * @throws IOException if the compaction can not be started.
+     */
+    default Checkpoint checkpoint(Class<?> model) throws IOException {
+        return null;
+    }
+
+    /**
+     * The state of the storage at the start of a compaction.
+     */
+    interface Checkpoint {
+        /**
+         * Writes the entities of the model as they were at the start of the compaction, and removes what they
+         * replace from the storage.
+         *
+         * @param entities the entities of the model in their order, with the records returned by the loading
+         *                 which have not been written since.
+         * @throws IOException if the entities can not be written.
+         */
+        void write(List<Object> entities) throws IOException;
+    }
+}
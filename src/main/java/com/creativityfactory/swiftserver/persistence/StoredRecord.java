@@ -0,0 +1,22 @@
+package com.creativityfactory.swiftserver.persistence;
+
+import java.io.IOException;
+
+/**
+ * A stored entity which is not decoded yet, as it can be returned by {@link StorageEngine#load(Class)}. The store
+ * keeps the record instead of the entity, and decodes it from the storage each time the entity is read.
+ */
+public interface StoredRecord {
+    /**
+     * Returns the id of the entity, read without decoding the entity.
+     * @return the id, or null if the entity has no id.
+     */
+    Object id();
+
+    /**
+     * Decodes the entity from the storage.
+     * @return a new instance of the entity.
+     * @throws IOException if the record can not be read.
+     */
+    Object decode() throws IOException;
+}
@@ -0,0 +1,209 @@
+package com.creativityfactory.swiftserver.persistence;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * <p>The append-only log of the writes of a model. The log is split in segments named
+ * "&lt;model&gt;.&lt;generation&gt;.wal", the records are appended to the segment of the highest generation and
+ * a compaction starts a new segment, so the older ones can be deleted once a snapshot covers them.</p>
+ *
+ * <p>Every record is framed by its length and the CRC32 of its content:</p>
+ * <pre>
+ * [length: int][crc32: int][type: byte][payload: length - 1 bytes]
+ * </pre>
+ * <p>The records of a batch are written together and flushed once. On recovery the records are
+ * read until the end of a segment or until a truncated or corrupted record, which is the last write of a crash:
+ * the segment is truncated before it.</p>
+ */
+final class WriteAheadLog {
+    static final byte INSERT = 1;
+    static final byte UPDATE = 2;
+    static final byte DELETE = 3;
+
+    private static final String SUFFIX = ".wal";
+    private static final int HEADER_SIZE = 8;
+
+    private final File directory;
+    private final String name;
+    private FileChannel channel;
+    private long generation;
+    // the number of bytes of all the segments
+    private long size;
+
+    /**
+     * Reads the records of the log.
+     */
+    interface RecordHandler {
+        void accept(byte type, byte[] payload) throws IOException;
+    }
+
+    WriteAheadLog(File directory, String name) {
+        this.directory = directory;
+        this.name = name;
+    }
+
+    /**
+     * Reads the records of all the segments in order, then opens a new segment for the next records.
+     *
+     * @param handler called for every valid record.
+     * @throws IOException if a segment can not be read.
+     */
+    synchronized void recover(RecordHandler handler) throws IOException {
+        close();
+        size = 0;
+        long last = 0;
+        for (long segment: segments()) {
+            File file = segmentFile(segment);
+            long valid = replay(file, handler);
+            // a segment opened by a previous run without any write
+            if (valid == 0 && file.length() == 0 && file.delete()) continue;
+            if (valid < file.length()) {
+                System.out.println("[WAL]: truncating " + file.getName() + " at " + valid + " of " + file.length() + " bytes");
+                try (FileChannel truncated = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                    truncated.truncate(valid);
+                    truncated.force(true);
+                }
+            }
+            size += valid;
+            last = segment;
+        }
+
+        open(last + 1);
+    }
+
+    /**
+     * Appends records with a single write, then flushes them to the disk if asked.
+     *
+     * @param records the encoded records, see {@link #encode(byte, byte[])}.
+     * @param sync whether the records are flushed to the disk.
+     * @throws IOException if the records can not be written.
+     */
+    synchronized void append(ByteBuffer[] records, boolean sync) throws IOException {
+        if (channel == null) {
+            List<Long> segments = segments();
+            open(segments.isEmpty()? 1: segments.get(segments.size() - 1) + 1);
+        }
+
+        long length = 0;
+        for (ByteBuffer record: records) length += record.remaining();
+        long written = 0;
+        while (written < length) written += channel.write(records);
+        if (sync) channel.force(false);
+        size += length;
+    }
+
+    /**
+     * Returns the number of bytes of all the segments, it is the amount of records a compaction would remove.
+     * @return the size of the log in bytes.
+     */
+    synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Closes the current segment and starts a new one.
+     * @return the generation of the closed segment, the segments up to it are covered by the next snapshot.
+     * @throws IOException if the new segment can not be created.
+     */
+    synchronized long rotate() throws IOException {
+        long closed = generation;
+        close();
+        open(closed + 1);
+        size = 0;
+
+        return closed;
+    }
+
+    /**
+     * Deletes the segments covered by a snapshot.
+     * @param covered the generation of the last covered segment.
+     */
+    synchronized void deleteUpTo(long covered) {
+        for (long segment: segments()) {
+            if (segment <= covered && !segmentFile(segment).delete()) {
+                System.out.println("[WAL]: can not delete " + segmentFile(segment).getName());
+            }
+        }
+    }
+
+    synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    static ByteBuffer encode(byte type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + 1 + payload.length);
+        record.putInt(payload.length + 1).putInt((int) crc.getValue()).put(type).put(payload);
+        record.flip();
+        return record;
+    }
+
+    // returns the number of bytes of the valid records of the segment
+    private static long replay(File file, RecordHandler handler) throws IOException {
+        long valid = 0;
+        long available = file.length();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (available - valid >= HEADER_SIZE + 1) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length < 1 || length > available - valid - HEADER_SIZE) break;
+
+                byte type = in.readByte();
+                byte[] payload = new byte[length - 1];
+                in.readFully(payload);
+
+                CRC32 crc = new CRC32();
+                crc.update(type);
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) break;
+
+                handler.accept(type, payload);
+                valid += HEADER_SIZE + length;
+            }
+        }
+
+        return valid;
+    }
+
+    private void open(long segment) throws IOException {
+        generation = segment;
+        channel = FileChannel.open(segmentFile(segment).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private File segmentFile(long segment) {
+        return new File(directory, name + "." + segment + SUFFIX);
+    }
+
+    // the generations of the existing segments in ascending order
+    private List<Long> segments() {
+        List<Long> segments = new ArrayList<>();
+        String[] files = directory.list();
+        if (files == null) return segments;
+
+        String prefix = name + ".";
+        for (String file: files) {
+            if (!file.startsWith(prefix) || !file.endsWith(SUFFIX)) continue;
+            try {
+                segments.add(Long.parseLong(file.substring(prefix.length(), file.length() - SUFFIX.length())));
+            } catch (NumberFormatException ignored) {
+                // not a segment of this model
+            }
+        }
+        segments.sort(null);
+
+        return segments;
+    }
+}
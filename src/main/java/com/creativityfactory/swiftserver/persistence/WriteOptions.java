@@ -0,0 +1,41 @@
+package com.creativityfactory.swiftserver.persistence;
+
+/**
+ * The options of the write pipeline of the default persistence, see {@link WritePipeline}.
+ */
+public final class WriteOptions {
+    /**
+     * Batches of up to 128 writes, without waiting for more writes, flushed to the disk.
+     */
+    public static final WriteOptions DEFAULT = new WriteOptions(128, 0, true);
+
+    private final int maxBatchSize;
+    private final long batchWindowMicros;
+    private final boolean fsync;
+
+    /**
+     * Creates the options.
+     *
+     * @param maxBatchSize the maximum number of writes stored together, at least one.
+     * @param batchWindowMicros how long the first write of a batch waits for more writes, zero to store the writes
+     *                          which are already queued only.
+     * @param fsync whether a batch is flushed to the disk, otherwise it is only handed to the operating system.
+     */
+    public WriteOptions(int maxBatchSize, long batchWindowMicros, boolean fsync) {
+        this.maxBatchSize = Math.max(maxBatchSize, 1);
+        this.batchWindowMicros = Math.max(batchWindowMicros, 0);
+        this.fsync = fsync;
+    }
+
+    public int maxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public long batchWindowMicros() {
+        return batchWindowMicros;
+    }
+
+    public boolean fsync() {
+        return fsync;
+    }
+}
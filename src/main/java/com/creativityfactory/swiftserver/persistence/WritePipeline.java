@@ -0,0 +1,113 @@
+package com.creativityfactory.swiftserver.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * <p>The queue of the writes of a model. The writes of the concurrent requests are queued and applied by a single
+ * daemon thread in batches, so the storage is flushed once per batch instead of once per write, and the writes
+ * never race with each other. A batch takes the queued writes up to the maximum batch size, after waiting for
+ * more writes during the batch window if it is not zero.</p>
+ *
+ * <p>A caller of {@link #submit(Mutation)} returns when the batch of its write has been stored and published.</p>
+ */
+final class WritePipeline {
+    private final String name;
+    private final WriteOptions options;
+    private final BatchWriter writer;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private Thread thread;
+
+    /**
+     * Applies a batch of writes.
+     */
+    interface BatchWriter {
+        /**
+         * Stores and publishes the given writes, and completes every one of them.
+         * @param batch the writes in their order of submission.
+         */
+        void apply(List<Pending> batch) throws Exception;
+    }
+
+    /**
+     * A queued write and the result of its caller.
+     */
+    static final class Pending {
+        final Mutation mutation;
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        private Pending(Mutation mutation) {
+            this.mutation = mutation;
+        }
+    }
+
+    WritePipeline(String name, WriteOptions options, BatchWriter writer) {
+        this.name = name;
+        this.options = options;
+        this.writer = writer;
+    }
+
+    /**
+     * Queues a write and waits until its batch is applied.
+     *
+     * @param mutation the write.
+     * @return the result of the write given by the batch writer.
+     * @throws Exception the exception of the batch of this write.
+     */
+    Object submit(Mutation mutation) throws Exception {
+        Pending pending = new Pending(mutation);
+        start();
+        queue.add(pending);
+
+        try {
+            return pending.result.get();
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw exception;
+        }
+    }
+
+    private synchronized void start() {
+        if (thread != null) return;
+
+        thread = new Thread(this::run, "swiftserve-writer-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(options.maxBatchSize());
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, options.maxBatchSize() - batch.size());
+                if (options.batchWindowMicros() > 0) collect(batch);
+
+                writer.apply(batch);
+            } catch (InterruptedException exception) {
+                for (Pending pending: batch) pending.result.completeExceptionally(exception);
+                Thread.currentThread().interrupt();
+            } catch (Throwable throwable) {
+                for (Pending pending: batch) pending.result.completeExceptionally(throwable);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // waits for more writes until the batch is full or its window is over
+    private void collect(List<Pending> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(options.batchWindowMicros());
+        while (batch.size() < options.maxBatchSize()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) return;
+
+            Pending pending = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (pending == null) return;
+            batch.add(pending);
+            queue.drainTo(batch, options.maxBatchSize() - batch.size());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.creativityfactory.swiftserver.request;
+
+import com.creativityfactory.swiftserver.utils.BufferPool;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.io.IOException;
+import java.io.FilterInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <p>This class reads the body of a request from the input stream of the servlet, with a limit on its size.</p>
+ *
+ * <p>When the length of the body is announced by the Content-Length header, the body is read directly into an
+ * array of this length, otherwise it is read in chunks through the byte buffer of the current thread. In both
+ * cases the bytes are decoded only once, with the charset of the request or UTF-8 by default.</p>
+ */
+public final class BodyReader {
+    private BodyReader() {}
+
+    /**
+     * Reads the whole body of the given request.
+     *
+     * @param request the request of the servlet.
+     * @param maxBodySize the maximum size of the body in bytes.
+     * @return the body of the request, an empty string if it has no body.
+     * @throws BodyTooLargeException if the body is larger than the maximum size.
+     * @throws IOException if there is an error reading the body.
+     */
+    public static String read(HttpServletRequest request, long maxBodySize) throws IOException {
+        long length = request.getContentLengthLong();
+        if (length > maxBodySize) throw new BodyTooLargeException(maxBodySize);
+
+        byte[] bytes = (length >= 0)
+                ? readKnownLength(request.getInputStream(), (int) length)
+                : readChunked(request.getInputStream(), maxBodySize);
+
+        return new String(bytes, charsetOf(request));
+    }
+
+    /**
+     * Returns a reader streaming the body of the given request, the size of the body is checked while it is read.
+     *
+     * @param request the request of the servlet.
+     * @param maxBodySize the maximum size of the body in bytes.
+     * @return a reader over the body of the request.
+     * @throws BodyTooLargeException if the body is larger than the maximum size, possibly while reading it.
+     * @throws IOException if there is an error opening the body.
+     */
+    public static Reader reader(HttpServletRequest request, long maxBodySize) throws IOException {
+        if (request.getContentLengthLong() > maxBodySize) throw new BodyTooLargeException(maxBodySize);
+
+        return new InputStreamReader(new LimitedInputStream(request.getInputStream(), maxBodySize), charsetOf(request));
+    }
+
+    /**
+     * Returns the charset of the body of the given request.
+     * @param request the request of the servlet.
+     * @return the charset of the request, or UTF-8 if it is absent or unknown.
+     */
+    public static Charset charsetOf(HttpServletRequest request) {
+        String encoding = request.getCharacterEncoding();
+        if (encoding == null) return StandardCharsets.UTF_8;
+
+        try {
+            return Charset.forName(encoding);
+        } catch (IllegalArgumentException exception) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    private static byte[] readKnownLength(InputStream in, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            int read = in.read(bytes, offset, length - offset);
+            if (read == -1) return Arrays.copyOf(bytes, offset);
+            offset += read;
+        }
+
+        return bytes;
+    }
+
+    private static byte[] readChunked(InputStream in, long maxBodySize) throws IOException {
+        byte[] buffer = BufferPool.bytes();
+        byte[] bytes = new byte[0];
+        int size = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (size + (long) read > maxBodySize) throw new BodyTooLargeException(maxBodySize);
+            if (size + read > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(size + read, Math.min(2 * bytes.length, Integer.MAX_VALUE - 8)));
+            }
+            System.arraycopy(buffer, 0, bytes, size, read);
+            size += read;
+        }
+
+        return (size == bytes.length)? bytes: Arrays.copyOf(bytes, size);
+    }
+
+    /**
+     * An input stream failing as soon as more than a maximum number of bytes has been read.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        private final long maxBodySize;
+        private long size;
+
+        private LimitedInputStream(InputStream in, long maxBodySize) {
+            super(in);
+            this.maxBodySize = maxBodySize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b != -1) count(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            if (read > 0) count(read);
+            return read;
+        }
+
+        private void count(int read) {
+            size += read;
+            if (size > maxBodySize) throw new BodyTooLargeException(maxBodySize);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.creativityfactory.swiftserver.request;
+
+/**
+ * Thrown when the body of a request is larger than the maximum body size of the application, the request is
+ * then answered with the status 413 (Payload Too Large).
+ */
+public class BodyTooLargeException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final long maxBodySize;
+
+    public BodyTooLargeException(long maxBodySize) {
+        super("The body of the request is larger than " + maxBodySize + " bytes");
+        this.maxBodySize = maxBodySize;
+    }
+
+    /**
+     * Returns the maximum body size which has been exceeded.
+     * @return the maximum body size in bytes.
+     */
+    public long maxBodySize() {
+        return maxBodySize;
+    }
+}
@@ -1,15 +1,18 @@
 package com.creativityfactory.swiftserver.request;
 
-import com.creativityfactory.swiftserver.response.Response;
+import com.creativityfactory.swiftserver.route.RouteMatch;
+import com.creativityfactory.swiftserver.route.RouteParams;
 import com.creativityfactory.swiftserver.utils.BodyAdapter;
 import com.creativityfactory.swiftserver.utils.BodyAdapterImpl;
-import com.creativityfactory.swiftserver.utils.IOUtils;
 import com.creativityfactory.swiftserver.utils.RouteUtils;
 import com.google.gson.Gson;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.util.Map;
 
 /**
@@ -22,7 +25,7 @@ import java.util.Map;
  * Example usage:
  *
  * <pre>{@code
- * Request request = new HttpRequest(req);
+ * Request request = new HttpRequest(req, match);
  * String method = request.method();
  * HttpSession session = request.session();
  * // ...
@@ -30,53 +33,97 @@ import java.util.Map;
  */
 public class HttpRequest implements Request {
     private boolean isContinue;
-    private final Gson gson;
+    // Gson is thread-safe, one instance is shared by all the requests
+    private static final Gson gson = new Gson();
     private final HttpServletRequest request;
+    private final String pattern;
     private final Map<String, String> queries;
-    private final Map<String, String> routeParams;
-    // only for data/form and json
+    private final RouteParams routeParams;
+    private final RequestContext context = new RequestContext();
+    private final long maxBodySize;
+    // only for data/form and json, it is created on the first access to the body
     private BodyAdapter bodyAdapter;
-    public HttpRequest(HttpServletRequest request) throws IOException {
+
+    public HttpRequest(HttpServletRequest request, RouteMatch match) {
+        this(request, match, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a request whose body is read lazily, the first time one of the body methods is called.
+     *
+     * @param request the request of the servlet.
+     * @param match the route matched by the request with its params.
+     * @param maxBodySize the maximum size of the body in bytes.
+     */
+    public HttpRequest(HttpServletRequest request, RouteMatch match, long maxBodySize) {
         isContinue = false;
-        gson = new Gson();
         this.request = request;
         // extract queries
         this.queries = RouteUtils.extractQueries(request.getQueryString());
 
-        // extract params
-        String pattern = (String) request.getAttribute("pattern");
-        routeParams = RouteUtils.extractParams(pattern, path());
-
-        String bodyString = null;
-        // parse the body to string: warning does not support files
-        if (contentType() != null) {
-            bodyString = IOUtils.fromBufferToString(request.getReader());
+        // the params are already extracted by the router while matching the route
+        this.pattern = match.pattern();
+        this.routeParams = match.params();
+        this.maxBodySize = maxBodySize;
+    }
+
+    /**
+     * Returns the adapter of the body, the body is read on the first call.
+     * @return the adapter of the body.
+     * @throws BodyTooLargeException if the body is larger than the maximum body size.
+     * @throws UncheckedIOException if there is an error reading the body.
+     */
+    private BodyAdapter bodyAdapter() {
+        if (bodyAdapter == null) {
+            String bodyString = null;
+            // parse the body to string: warning does not support files
+            if (contentType() != null) {
+                try {
+                    bodyString = BodyReader.read(request, maxBodySize);
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            }
+
+            bodyAdapter = new BodyAdapterImpl(gson, bodyString, contentType(), bodyEncoding());
         }
 
-        this.bodyAdapter = new BodyAdapterImpl(gson, bodyString, contentType(), bodyEncoding());
+        return bodyAdapter;
     }
 
     @Override
     public String body() {
-        return bodyAdapter.body();
+        return bodyAdapter().body();
     }
     @Override
     public Map<String, String> formDataBody() {
-        return bodyAdapter.formData();
+        return bodyAdapter().formData();
     }
     @Override
     public String jsonBody() {
-        return bodyAdapter.jsonFormat();
+        return bodyAdapter().jsonFormat();
     }
 
     @Override
     public String urlEncodedFormatBody() {
-        return bodyAdapter.urlEncodedFormat();
+        return bodyAdapter().urlEncodedFormat();
     }
     @Override
     public Object body(Class<?> clazz) {
-        return bodyAdapter.modelFormat(clazz);
+        return bodyAdapter().modelFormat(clazz);
     }
+    @Override
+    public Reader bodyReader() throws IOException {
+        if (bodyAdapter == null && contentType() != null) {
+            // the body is streamed, the body methods will find an empty body
+            bodyAdapter = new BodyAdapterImpl(gson, "", contentType(), bodyEncoding());
+            return BodyReader.reader(request, maxBodySize);
+        }
+
+        String body = bodyAdapter().body();
+        return new StringReader((body == null)? "": body);
+    }
+
     @Override
     public void setBody(String body) {
         bodyAdapter = new BodyAdapterImpl(gson, body, contentType(), bodyEncoding());
@@ -113,11 +160,21 @@ public class HttpRequest implements Request {
         return routeParams.get(name);
     }
 
+    @Override
+    public Object paramValue(String name) {
+        return routeParams.getValue(name);
+    }
+
     @Override
     public String query(String name) {
         return queries.get(name);
     }
 
+    @Override
+    public String queryString() {
+        return request.getQueryString();
+    }
+
     @Override
     public String header(String headerName) {
         return request.getHeader(headerName);
@@ -164,7 +221,12 @@ public class HttpRequest implements Request {
 
     @Override
     public String pattern() {
-        return (String) request.getAttribute("pattern");
+        return pattern;
+    }
+
+    @Override
+    public RequestContext context() {
+        return context;
     }
 
     @Override
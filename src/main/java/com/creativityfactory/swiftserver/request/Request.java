@@ -1,6 +1,9 @@
 package com.creativityfactory.swiftserver.request;
 
 import jakarta.servlet.http.HttpSession;
+
+import java.io.IOException;
+import java.io.Reader;
 import java.util.Map;
 
 /**
@@ -62,6 +65,14 @@ public interface Request {
      * @throws IllegalArgumentException if the request body cannot be mapped to the specified class.
      */
     Object body(Class<?> clazz);
+    /**
+     * Returns a reader over the body of the request, it lets a middleware decode the body in a single pass without
+     * building its string. If the body has already been read as a string, the reader is over this string, otherwise
+     * the body is streamed and the other body methods can not read it again.
+     * @return a reader over the body of the request.
+     * @throws IOException if there is an error opening the body.
+     */
+    Reader bodyReader() throws IOException;
     //-----------------------------------
     /**
      * Parses the body of the request and maps it to an instance of the specified class.
@@ -91,6 +102,15 @@ public interface Request {
      */
     String params(String name);
 
+    /**
+     * Returns the value of the specified route parameter converted by the type of its placeholder, for example
+     * an {@link Integer} for "/students/:id&lt;int&gt;". The value of an untyped placeholder is returned as a String.
+     *
+     * @param name the name of the parameter to retrieve
+     * @return the converted value of the parameter, or null if the parameter does not exist
+     */
+    Object paramValue(String name);
+
     /**
      * Returns the value of the specified query parameter as a String, or null if the parameter does not exist.
      *
@@ -98,6 +118,13 @@ public interface Request {
      * @return the value of the query parameter, or null if the parameter does not exist
      */
     String query(String name);
+
+    /**
+     * Returns the raw query string of the URL, without the "?".
+     *
+     * @return the query string, or null if the URL does not have one
+     */
+    String queryString();
     /**
      *
      */
@@ -184,6 +211,14 @@ public interface Request {
      */
     String pattern();
 
+    /**
+     * Returns the typed context of this request, it is used by the middlewares of the generated REST APIs to pass
+     * the model, the persistence object, the id and the parsed body to each other.
+     *
+     * @return the context of this request, never null.
+     */
+    RequestContext context();
+
     /**
      * Sets the value indicating whether the request should continue to be
      * handled by the next middleware or route.
@@ -0,0 +1,71 @@
+package com.creativityfactory.swiftserver.request;
+
+import com.creativityfactory.swiftserver.model.ModelDescriptor;
+import com.creativityfactory.swiftserver.persistence.Persistence;
+
+/**
+ * <p>A typed context carried by a {@link Request}, it holds the values which the middlewares of the generated
+ * REST APIs pass to each other: the model of the route, its persistence object, the converted id and the
+ * parsed body.</p>
+ *
+ * <p>Unlike the attributes of the request, reading a slot is a plain field access without a lookup in the
+ * attributes map of the container or a cast from a name.</p>
+ */
+public class RequestContext {
+    private ModelDescriptor model;
+    private Persistence<Object> persistence;
+    private Object id;
+    private Object body;
+
+    /**
+     * Returns the descriptor of the model of the route.
+     * @return the descriptor of the model, or null if the route is not bound to a model.
+     */
+    public ModelDescriptor model() {
+        return model;
+    }
+
+    public RequestContext setModel(ModelDescriptor model) {
+        this.model = model;
+        return this;
+    }
+
+    /**
+     * Returns the persistence object of the model of the route.
+     * @return the persistence object, or null if it is not set.
+     */
+    public Persistence<Object> persistence() {
+        return persistence;
+    }
+
+    public RequestContext setPersistence(Persistence<Object> persistence) {
+        this.persistence = persistence;
+        return this;
+    }
+
+    /**
+     * Returns the id of the resource of the request converted to the type of the id of the model.
+     * @return the converted id, or null if it is not set.
+     */
+    public Object id() {
+        return id;
+    }
+
+    public RequestContext setId(Object id) {
+        this.id = id;
+        return this;
+    }
+
+    /**
+     * Returns the body of the request parsed to an object of the model.
+     * @return the parsed body, or null if it is not set.
+     */
+    public Object body() {
+        return body;
+    }
+
+    public RequestContext setBody(Object body) {
+        this.body = body;
+        return this;
+    }
+}
@@ -0,0 +1,276 @@
+package com.creativityfactory.swiftserver.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * <p>This class holds the settings of the compression of the responses and does the compression with pooled
+ * {@link Deflater} objects. The encoding of a response is negotiated from the Accept-Encoding header of the
+ * request, gzip is preferred over deflate when the client accepts both with the same quality.</p>
+ *
+ * <p>A body is compressed only if its content type is in the allowed types and its size is at least the
+ * minimum size, a small body would be bigger once compressed.</p>
+ */
+public class Compression {
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+    private static final int POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
+
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+    /**
+     * The content types compressed by default.
+     */
+    public static final Set<String> DEFAULT_TYPES = Set.of("application/json", "text/html", "text/plain",
+            "text/css", "text/javascript", "application/javascript", "application/xml", "text/xml");
+    /**
+     * No response is compressed.
+     */
+    public static final Compression NONE = new Compression(false, 0, Set.of(), Deflater.DEFAULT_COMPRESSION);
+
+
+    private final boolean enabled;
+    private final int minSize;
+    private final Set<String> types;
+    private final DeflaterPool gzipDeflaters;
+    private final DeflaterPool deflateDeflaters;
+
+    /**
+     * Creates the settings of the compression.
+     *
+     * @param enabled whether the responses are compressed.
+     * @param minSize the minimum size in bytes of a compressed body.
+     * @param types the content types which are compressed, without their parameters.
+     * @param level the level of the compression, from 0 to 9 or -1 for the default level of zlib.
+     */
+    public Compression(boolean enabled, int minSize, Collection<String> types, int level) {
+        this.enabled = enabled;
+        this.minSize = minSize;
+        this.types = new HashSet<>();
+        for (String type: types) this.types.add(type.trim().toLowerCase(Locale.ROOT));
+        this.gzipDeflaters = new DeflaterPool(level, true, POOL_SIZE);
+        this.deflateDeflaters = new DeflaterPool(level, false, POOL_SIZE);
+    }
+
+    /**
+     * Parses a comma separated list of content types.
+     * @param types the list of content types, for example "application/json, text/html".
+     * @return the set of content types.
+     */
+    public static Set<String> parseTypes(String types) {
+        Set<String> set = new HashSet<>();
+        for (String type: types.split(",")) {
+            if (!type.isBlank()) set.add(type.trim());
+        }
+
+        return set;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int minSize() {
+        return minSize;
+    }
+
+    /**
+     * Returns the encoding to use for a request with the given Accept-Encoding header.
+     *
+     * @param acceptEncoding the value of the Accept-Encoding header, may be null.
+     * @return {@link #GZIP}, {@link #DEFLATE}, or null if the response must not be compressed.
+     */
+    public String negotiate(String acceptEncoding) {
+        if (!enabled || acceptEncoding == null || acceptEncoding.isEmpty()) return null;
+
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String part: acceptEncoding.split(",")) {
+            int semicolon = part.indexOf(';');
+            String coding = ((semicolon < 0)? part: part.substring(0, semicolon)).trim().toLowerCase(Locale.ROOT);
+            double quality = (semicolon < 0)? 1: quality(part.substring(semicolon + 1));
+
+            if (coding.equals(GZIP) || coding.equals("x-gzip")) gzip = Math.max(gzip, quality);
+            else if (coding.equals(DEFLATE)) deflate = quality;
+            else if (coding.equals("*")) any = quality;
+        }
+        if (gzip < 0) gzip = any;
+        if (deflate < 0) deflate = any;
+
+        if (gzip > 0 && gzip >= deflate) return GZIP;
+        if (deflate > 0) return DEFLATE;
+        return null;
+    }
+
+    private static double quality(String parameters) {
+        for (String parameter: parameters.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(trimmed.substring(2).trim());
+                } catch (NumberFormatException exception) {
+                    return 0;
+                }
+            }
+        }
+
+        return 1;
+    }
+
+    /**
+     * Returns whether a body of the given content type can be compressed.
+     *
+     * @param contentType the content type of the body, its parameters are ignored.
+     * @return true if the content type is in the allowed types.
+     */
+    public boolean isCompressible(String contentType) {
+        if (!enabled || contentType == null) return false;
+
+        int semicolon = contentType.indexOf(';');
+        String type = ((semicolon < 0)? contentType: contentType.substring(0, semicolon)).trim().toLowerCase(Locale.ROOT);
+        return types.contains(type);
+    }
+
+    /**
+     * Compresses the given bytes.
+     *
+     * @param bytes the bytes to compress.
+     * @param off the offset of the first byte.
+     * @param len the number of bytes.
+     * @param encoding {@link #GZIP} or {@link #DEFLATE}.
+     * @return the compressed bytes.
+     */
+    public byte[] compress(byte[] bytes, int off, int len, String encoding) {
+        boolean gzip = GZIP.equals(encoding);
+        DeflaterPool pool = gzip? gzipDeflaters: deflateDeflaters;
+        Deflater deflater = pool.acquire();
+        try {
+            // the bound of zlib for the stored blocks, plus the header and the trailer of gzip
+            byte[] out = new byte[len + (len >> 12) + (len >> 14) + (len >> 25) + 64];
+            int count = 0;
+            if (gzip) {
+                System.arraycopy(GZIP_HEADER, 0, out, 0, GZIP_HEADER.length);
+                count = GZIP_HEADER.length;
+            }
+
+            deflater.setInput(bytes, off, len);
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (count == out.length) out = Arrays.copyOf(out, 2 * out.length);
+                count += deflater.deflate(out, count, out.length - count);
+            }
+
+            if (gzip) {
+                CRC32 crc = new CRC32();
+                crc.update(bytes, off, len);
+                if (out.length - count < 8) out = Arrays.copyOf(out, count + 8);
+                count = writeTrailer(out, count, crc.getValue(), len);
+            }
+
+            return Arrays.copyOf(out, count);
+        } finally {
+            pool.release(deflater);
+        }
+    }
+
+    /**
+     * Returns a stream compressing what is written to it into the given stream, it is used when the body is
+     * streamed. Closing the returned stream finishes the compression without closing the given stream.
+     *
+     * @param out the stream receiving the compressed bytes.
+     * @param encoding {@link #GZIP} or {@link #DEFLATE}.
+     * @return the compressing stream.
+     * @throws IOException if an I/O error occurs writing the header.
+     */
+    public OutputStream compressingStream(OutputStream out, String encoding) throws IOException {
+        return new CompressingOutputStream(out, GZIP.equals(encoding));
+    }
+
+    /**
+     * Gives back the deflater of a stream returned by {@link #compressingStream(OutputStream, String)} without
+     * finishing the compressed data, it is called when the response is aborted.
+     *
+     * @param stream the compressing stream, any other stream is ignored.
+     */
+    void abort(OutputStream stream) {
+        if (stream instanceof CompressingOutputStream) ((CompressingOutputStream) stream).abort();
+    }
+
+    private static int writeTrailer(byte[] out, int count, long crc, long size) {
+        for (int i = 0; i < 4; i++) out[count++] = (byte) (crc >> (8 * i));
+        for (int i = 0; i < 4; i++) out[count++] = (byte) (size >> (8 * i));
+        return count;
+    }
+
+    /**
+     * A stream compressing with a pooled deflater, in the gzip or the zlib format.
+     */
+    private final class CompressingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final DeflaterPool pool;
+        private final CRC32 crc;
+        private final byte[] buffer = new byte[Utf8Output.BUFFER_SIZE];
+        private Deflater deflater;
+        private long size;
+
+        private CompressingOutputStream(OutputStream out, boolean gzip) throws IOException {
+            this.out = out;
+            this.pool = gzip? gzipDeflaters: deflateDeflaters;
+            this.crc = gzip? new CRC32(): null;
+            this.deflater = pool.acquire();
+            if (gzip) out.write(GZIP_HEADER);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return;
+            if (crc != null) crc.update(b, off, len);
+            size += len;
+
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                int count = deflater.deflate(buffer, 0, buffer.length);
+                if (count > 0) out.write(buffer, 0, count);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (deflater == null) return;
+
+            try {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int count = deflater.deflate(buffer, 0, buffer.length);
+                    if (count > 0) out.write(buffer, 0, count);
+                }
+                if (crc != null) {
+                    byte[] trailer = new byte[8];
+                    writeTrailer(trailer, 0, crc.getValue(), size);
+                    out.write(trailer);
+                }
+            } finally {
+                abort();
+            }
+        }
+
+        private void abort() {
+            if (deflater == null) return;
+
+            pool.release(deflater);
+            deflater = null;
+        }
+    }
+}
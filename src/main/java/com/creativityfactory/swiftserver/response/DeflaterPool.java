@@ -0,0 +1,39 @@
+package com.creativityfactory.swiftserver.response;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * A bounded pool of {@link Deflater} objects of the same level and format, the native state of zlib is then
+ * allocated once per pooled deflater instead of once per response.
+ */
+final class DeflaterPool {
+    private final int level;
+    private final boolean nowrap;
+    private final BlockingQueue<Deflater> deflaters;
+
+    DeflaterPool(int level, boolean nowrap, int capacity) {
+        this.level = level;
+        this.nowrap = nowrap;
+        this.deflaters = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Takes a deflater from the pool, a new one is created if the pool is empty.
+     * @return a deflater ready to compress.
+     */
+    Deflater acquire() {
+        Deflater deflater = deflaters.poll();
+        return (deflater == null)? new Deflater(level, nowrap): deflater;
+    }
+
+    /**
+     * Gives a deflater back to the pool, it is released if the pool is full.
+     * @param deflater the deflater to give back.
+     */
+    void release(Deflater deflater) {
+        deflater.reset();
+        if (!deflaters.offer(deflater)) deflater.end();
+    }
+}
@@ -0,0 +1,135 @@
+package com.creativityfactory.swiftserver.response;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+/**
+ * <p>An immutable body kept with its content type, it is used to send the same body many times, for example
+ * from a cache of responses. The compressed variants of the body are computed the first time a client accepts
+ * them and are kept alongside the plain bytes, so a cached body is compressed at most once per encoding.</p>
+ */
+public final class EncodedBody {
+    /**
+     * The content type of the JSON bodies, as it is set by {@link HttpResponse#json(Object)}.
+     */
+    public static final String JSON_TYPE = "application/json;charset=UTF-8";
+
+    private static final Gson gson = new Gson();
+
+    private final byte[] plain;
+    private final String contentType;
+    private final int status;
+    private volatile byte[] gzip;
+    private volatile byte[] deflate;
+
+    /**
+     * Creates a body.
+     * @param plain the bytes of the body, they must not be modified after.
+     * @param contentType the content type of the body.
+     */
+    public EncodedBody(byte[] plain, String contentType) {
+        this(plain, contentType, 200);
+    }
+
+    private EncodedBody(byte[] plain, String contentType, int status) {
+        this.plain = plain;
+        this.contentType = contentType;
+        this.status = status;
+    }
+
+    /**
+     * Returns the same body sent with another status, for example a rendered 404.
+     * @param status the status of the response.
+     * @return a body sharing the bytes of this one.
+     */
+    public EncodedBody withStatus(int status) {
+        return new EncodedBody(plain, contentType, status);
+    }
+
+    /**
+     * Encodes the given value as a JSON body, without a response. It is used to render a body off the thread of
+     * a request, for example to refresh a cached body in the background.
+     *
+     * @param value the value to encode, null is encoded as an empty object like {@link HttpResponse#json(Object)}.
+     * @return the encoded body.
+     */
+    public static EncodedBody json(Object value) {
+        if (value == null) return new EncodedBody("{}".getBytes(StandardCharsets.UTF_8), JSON_TYPE);
+
+        return new EncodedBody(gson.toJson(value).getBytes(StandardCharsets.UTF_8), JSON_TYPE);
+    }
+
+    /**
+     * Encodes the given elements as a JSON array, like {@link HttpResponse#jsonArray(Iterable, Function)} but
+     * without a response.
+     *
+     * @param elements the elements of the array.
+     * @param mapper maps every element to the value written in the array.
+     * @return the encoded body.
+     */
+    public static <T> EncodedBody jsonArray(Iterable<T> elements, Function<? super T, ?> mapper) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+            writer.beginArray();
+            for (T element: elements) {
+                Object value = mapper.apply(element);
+                if (value == null) writer.nullValue();
+                else gson.toJson(value, value.getClass(), writer);
+            }
+            writer.endArray();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+
+        return new EncodedBody(bytes.toByteArray(), JSON_TYPE);
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    /**
+     * Returns the status of the response of this body, only the 200 bodies are cached.
+     * @return the status, 200 by default.
+     */
+    public int status() {
+        return status;
+    }
+
+    /**
+     * Returns the size of the plain body.
+     * @return the size in bytes.
+     */
+    public int size() {
+        return plain.length;
+    }
+
+    /**
+     * Returns the bytes of the body in the given encoding, a compressed variant is computed on the first call.
+     *
+     * @param encoding {@link Compression#GZIP}, {@link Compression#DEFLATE}, or null for the plain bytes.
+     * @param compression the compression computing the variants.
+     * @return the bytes of the body, they must not be modified.
+     */
+    public byte[] bytes(String encoding, Compression compression) {
+        if (Compression.GZIP.equals(encoding)) {
+            byte[] bytes = gzip;
+            if (bytes == null) gzip = bytes = compression.compress(plain, 0, plain.length, encoding);
+            return bytes;
+        }
+        if (Compression.DEFLATE.equals(encoding)) {
+            byte[] bytes = deflate;
+            if (bytes == null) deflate = bytes = compression.compress(plain, 0, plain.length, encoding);
+            return bytes;
+        }
+
+        return plain;
+    }
+}
@@ -1,17 +1,18 @@
 package com.creativityfactory.swiftserver.response;
 
-import com.creativityfactory.swiftserver.error.DirectorErrorResponseBuilder;
-import com.creativityfactory.swiftserver.error.ErrorMessageBuilder;
-import com.creativityfactory.swiftserver.error.ErrorMessageBuilderImpl;
-import com.creativityfactory.swiftserver.error.ErrorResponse;
+import com.creativityfactory.swiftserver.error.ErrorBodyWriter;
 import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.stream.JsonWriter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.util.NoSuchElementException;
+import java.util.function.Function;
 
 /**
  * An implementation of the {@link Response} interface that provides methods for setting HTTP response
@@ -32,17 +33,69 @@ import java.util.NoSuchElementException;
  */
 public class HttpResponse implements Response {
     private final HttpServletRequest request;
+    // Gson is thread-safe, one instance is shared by all the responses
+    private static final Gson gson = new Gson();
+
     private final  HttpServletResponse response;
-    private final PrintWriter out ;
-    private final Gson gson;
+    private final Compression compression;
+    // the encoding negotiated from the Accept-Encoding header, null if the body must not be compressed
+    private final String encoding;
+    // the response of a HEAD request does not have a body, so there is nothing to serialize
+    private final boolean noBody;
+    // the body is encoded to UTF-8 by this writer, it is created on the first write
+    private Utf8Output body;
+    private PrintWriter out;
+
 
+    public HttpResponse(HttpServletRequest request, HttpServletResponse response) {
+        this(request, response, Compression.NONE);
+    }
 
-    public HttpResponse(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    /**
+     * Creates a response whose body is compressed following the given settings.
+     *
+     * @param request the request of the servlet.
+     * @param response the response of the servlet.
+     * @param compression the settings of the compression.
+     */
+    public HttpResponse(HttpServletRequest request, HttpServletResponse response, Compression compression) {
         this.request = request;
         this.response = response;
-        this.out = this.response.getWriter();
-        this.gson = new Gson();
+        this.compression = compression;
+        this.encoding = compression.negotiate(request.getHeader("Accept-Encoding"));
+        this.noBody = "HEAD".equals(request.getMethod());
+    }
+
+    private Utf8Output body() {
+        if (body == null) {
+            response.setCharacterEncoding("UTF-8");
+            body = new Utf8Output(response, compression, encoding);
+        }
+
+        return body;
+    }
+
+    /**
+     * Sends what remains of the body, it is called once the handlers of the route have returned. A body written
+     * with {@link #write(String)}, {@link #json(Object)} or {@link #out()} which has not been streamed yet is sent
+     * in a single write with its Content-Length.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public void end() throws IOException {
+        if (body == null) return;
+        if (out != null) out.flush();
+        body.close();
     }
+
+    /**
+     * Discards what has not been sent of the body and releases its buffers, it is called instead of
+     * {@link #end()} when a handler of the route fails.
+     */
+    public void abort() {
+        if (body != null) body.abort();
+    }
+
     @Override
     public Response status(int n) {
         response.setStatus(n);
@@ -64,20 +117,110 @@ public class HttpResponse implements Response {
 
     @Override
     public Response write(String msg) {
-        out.print(msg);
+        if (noBody) return this;
+        try {
+            body().write(String.valueOf(msg));
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
         return this;
     }
 
     @Override
     public PrintWriter out() throws IOException {
-        return response.getWriter();
+        if (out == null) out = new PrintWriter(body());
+        return out;
     }
 
     @Override
     public void json(Object obj) {
         setHeader("Content-Type", "application/json");
-        if (obj == null) write("{}");
-        else write(gson.toJson(obj));
+        if (noBody) return;
+        if (obj == null) {
+            write("{}");
+            return;
+        }
+
+        try {
+            gson.toJson(obj, body());
+        } catch (JsonIOException exception) {
+            throw new UncheckedIOException(new IOException(exception));
+        }
+    }
+
+    @Override
+    public <T> void jsonArray(Iterable<T> elements, Function<? super T, ?> mapper) {
+        setHeader("Content-Type", "application/json");
+        if (noBody) return;
+
+        // the elements are serialized one by one into the buffer of the body, which is streamed when it is full
+        JsonWriter writer = new JsonWriter(body());
+        try {
+            writer.beginArray();
+            for (T element: elements) {
+                Object value = mapper.apply(element);
+                if (value == null) writer.nullValue();
+                else gson.toJson(value, value.getClass(), writer);
+            }
+            writer.endArray();
+            writer.flush();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Captures the body written from now instead of sending it, it lets a cache keep the encoded body. The
+     * captured body is taken by {@link #captured()}, then it can be sent with {@link #send(EncodedBody)}.
+     *
+     * @param maxBytes the maximum size of the captured body, a larger body is sent as usual.
+     */
+    public void capture(int maxBytes) {
+        if (!noBody) body().capture(maxBytes);
+    }
+
+    /**
+     * Returns the captured body, which has not been sent.
+     *
+     * @return the captured body, or null if there is no body or it has been sent because it was too large.
+     */
+    public EncodedBody captured() {
+        if (body == null) return null;
+        if (out != null) out.flush();
+
+        return body.captured(response.getContentType());
+    }
+
+    /**
+     * Returns the status of the response.
+     * @return the status code.
+     */
+    public int statusCode() {
+        return response.getStatus();
+    }
+
+    /**
+     * Sends an already encoded body, in the variant matching the Accept-Encoding header of the request when its
+     * content type is compressible.
+     *
+     * @param encodedBody the body to send.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void send(EncodedBody encodedBody) throws IOException {
+        if (encodedBody.status() != 200) status(encodedBody.status());
+        response.setContentType(encodedBody.contentType());
+        if (noBody) return;
+
+        String applied = null;
+        if (compression.isCompressible(encodedBody.contentType())) {
+            response.setHeader("Vary", "Accept-Encoding");
+            if (encodedBody.size() >= compression.minSize()) applied = encoding;
+        }
+        if (applied != null) response.setHeader("Content-Encoding", applied);
+
+        byte[] bytes = encodedBody.bytes(applied, compression);
+        response.setContentLength(bytes.length);
+        response.getOutputStream().write(bytes);
     }
 
     public HttpServletRequest getRequest() {
@@ -121,16 +264,29 @@ public class HttpResponse implements Response {
         throw new NoSuchElementException("The jsp \"" + relativePath + "\"page does not exist :");
     }
 
+    /**
+     * Sends the JSON body of an error, the body of the frequent messages is serialized in advance by
+     * {@link ErrorBodyWriter}.
+     */
     @Override
     public void sendError(int i, String message) {
         String path = (request.getPathInfo() == null)? "/":request.getPathInfo();
-        ErrorMessageBuilder messageBuilder = new ErrorMessageBuilderImpl();
-        DirectorErrorResponseBuilder director = new DirectorErrorResponseBuilder(messageBuilder);
-
-        director.make(i, path, message);
-        ErrorResponse errorResponse = messageBuilder.make();
 
         status(i);
-        json(errorResponse);
+        setHeader("Content-Type", "application/json");
+        if (noBody) return;
+
+        try {
+            // the error replaces what has been written of the body and not sent yet
+            if (body != null) body.discard();
+            ErrorBodyWriter.write(body(), i, message, path);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return response.isCommitted() || (body != null && body.isStreaming());
     }
 }
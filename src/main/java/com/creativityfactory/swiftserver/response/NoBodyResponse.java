@@ -0,0 +1,49 @@
+package com.creativityfactory.swiftserver.response;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+
+/**
+ * A wrapper of {@link HttpServletResponse} which discards the body, it is used to answer HEAD requests with
+ * the handlers of the GET routes, where only the status and the headers are sent to the client.
+ */
+public class NoBodyResponse extends HttpServletResponseWrapper {
+    private static final ServletOutputStream NO_BODY = new ServletOutputStream() {
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {}
+
+        @Override
+        public void write(int b) {}
+
+        @Override
+        public void write(byte[] b, int off, int len) {}
+    };
+
+    private PrintWriter writer;
+
+    public NoBodyResponse(HttpServletResponse response) {
+        super(response);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        return NO_BODY;
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        if (writer == null) writer = new PrintWriter(Writer.nullWriter());
+
+        return writer;
+    }
+}
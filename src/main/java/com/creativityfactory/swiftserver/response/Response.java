@@ -2,6 +2,7 @@ package com.creativityfactory.swiftserver.response;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.function.Function;
 /**
  * The Response interface represents the HTTP response to be sent back to the client.
  */
@@ -55,6 +56,14 @@ public interface Response {
      * @param obj the object to write.
      */
     void json(Object obj);
+    /**
+     * Writes the given elements in JSON format as an array to the response output stream. Every element is
+     * mapped and written as soon as it is reached, so the array is never built in memory.
+     * @param elements the elements to write.
+     * @param mapper the function giving the object to write for each element.
+     * @param <T> the type of the elements.
+     */
+    <T> void jsonArray(Iterable<T> elements, Function<? super T, ?> mapper);
     /**
      * Redirects the request to the specified URL.
      * @param url the URL to redirect to.
@@ -91,4 +100,9 @@ public interface Response {
      * @param message the error message.
      */
     void sendError(int i, String message);
+    /**
+     * Checks if a part of the body has already been sent, the response can then no longer be replaced by an error.
+     * @return true if the response is committed.
+     */
+    boolean isCommitted();
 }
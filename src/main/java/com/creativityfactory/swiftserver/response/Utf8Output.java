@@ -0,0 +1,257 @@
+package com.creativityfactory.swiftserver.response;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * <p>A writer encoding the body of a response to UTF-8 straight into a pooled byte buffer, without going
+ * through the writer of the container.</p>
+ *
+ * <p>A body which fits in the buffer is sent at the end in one write with its Content-Length. When the buffer
+ * is full, its bytes are sent to the output stream of the servlet and the rest of the body is streamed, in this
+ * case the container sends the body with the chunked transfer encoding.</p>
+ *
+ * <p>If the client accepts a compressed body and the content type of the response is compressible, a body of
+ * at least the minimum size of the {@link Compression} is compressed when it is sent, and a streamed body is
+ * compressed while it is streamed.</p>
+ *
+ * <p>A body can also be captured instead of being sent, the buffer then grows up to the limit of the capture
+ * so the whole body can be kept by a cache. A body larger than the limit is streamed as usual.</p>
+ */
+final class Utf8Output extends Writer {
+    static final int BUFFER_SIZE = 16 * 1024;
+    // the buffer of a thread is taken by a response and given back when it ends, a nested response allocates its own
+    private static final ThreadLocal<byte[]> pool = new ThreadLocal<>();
+
+    private final HttpServletResponse response;
+    private final Compression compression;
+    // the encoding accepted by the client, null if the body must not be compressed
+    private final String encoding;
+    private OutputStream stream;
+    private byte[] buffer;
+    private int count;
+    private boolean streaming;
+    // whether the streamed body goes through a compressing stream
+    private boolean compressing;
+    // the maximum size of a captured body, zero if the body is not captured
+    private int captureLimit;
+    // the high surrogate of a pair split between two writes
+    private char highSurrogate;
+
+    Utf8Output(HttpServletResponse response) {
+        this(response, Compression.NONE, null);
+    }
+
+    Utf8Output(HttpServletResponse response, Compression compression, String encoding) {
+        this.response = response;
+        this.compression = compression;
+        this.encoding = encoding;
+        this.buffer = pool.get();
+        if (buffer == null) buffer = new byte[BUFFER_SIZE];
+        else pool.set(null);
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        writeChar((char) c);
+    }
+
+    @Override
+    public void write(char[] chars, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) writeChar(chars[i]);
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) writeChar(str.charAt(i));
+    }
+
+    private void writeChar(char c) throws IOException {
+        if (buffer.length - count < 4) makeRoom();
+
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                buffer[count++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+                return;
+            }
+            // a lone surrogate is replaced like the encoders of the JDK do
+            buffer[count++] = '?';
+            if (buffer.length - count < 4) makeRoom();
+        }
+
+        if (c < 0x80) {
+            buffer[count++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[count++] = (byte) (0xC0 | (c >> 6));
+            buffer[count++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            buffer[count++] = '?';
+        } else {
+            buffer[count++] = (byte) (0xE0 | (c >> 12));
+            buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[count++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    /**
+     * Grows the buffer of a captured body, or sends the bytes of the buffer to the output stream.
+     */
+    private void makeRoom() throws IOException {
+        if (captureLimit > 0 && !streaming) {
+            if (buffer.length < captureLimit) {
+                buffer = Arrays.copyOf(buffer, (int) Math.min(captureLimit + 4L, 2L * buffer.length));
+                return;
+            }
+            // the body is too large to be captured
+            captureLimit = 0;
+        }
+
+        spill();
+    }
+
+    /**
+     * Captures the body instead of sending it, until {@link #captured(String)} is called.
+     * @param limit the maximum size of the captured body in bytes.
+     */
+    void capture(int limit) {
+        if (!streaming && limit > 0) captureLimit = limit;
+    }
+
+    /**
+     * Returns the captured body and releases the buffer, nothing is sent by this writer from now.
+     *
+     * @param contentType the content type of the body.
+     * @return the captured body, or null if the body has been streamed because it was too large.
+     */
+    EncodedBody captured(String contentType) {
+        if (captureLimit == 0 || buffer == null) return null;
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            buffer[count++] = '?';
+        }
+
+        EncodedBody body = new EncodedBody(Arrays.copyOf(buffer, count), contentType);
+        release();
+        return body;
+    }
+
+    private void release() {
+        // a buffer grown by a capture is not kept by the pool
+        if (buffer.length == BUFFER_SIZE) pool.set(buffer);
+        buffer = null;
+        captureLimit = 0;
+    }
+
+    /**
+     * Sends the bytes of the buffer to the output stream, from now the body is streamed.
+     */
+    private void spill() throws IOException {
+        if (!streaming) {
+            streaming = true;
+            String applied = compressible()? encoding: null;
+            compressing = applied != null;
+            stream = compressing? compression.compressingStream(response.getOutputStream(), applied): response.getOutputStream();
+        }
+
+        stream.write(buffer, 0, count);
+        count = 0;
+    }
+
+    /**
+     * Returns whether the body can be compressed with the accepted encoding, the Vary header is set for every
+     * body whose content type is compressible since the body depends on the Accept-Encoding header.
+     */
+    private boolean compressible() {
+        if (!compression.isEnabled() || response.containsHeader("Content-Encoding")) return false;
+        if (!compression.isCompressible(response.getContentType())) return false;
+
+        String vary = response.getHeader("Vary");
+        if (vary == null) response.setHeader("Vary", "Accept-Encoding");
+        else if (!vary.contains("Accept-Encoding")) response.setHeader("Vary", vary + ", Accept-Encoding");
+
+        if (encoding == null) return false;
+        response.setHeader("Content-Encoding", encoding);
+        return true;
+    }
+
+    /**
+     * Nothing is sent before the end of the response or until the buffer is full.
+     */
+    @Override
+    public void flush() {}
+
+    /**
+     * Sends the rest of the body and gives the buffer back to the pool. A body which has not been streamed is
+     * sent with its Content-Length.
+     */
+    @Override
+    public void close() throws IOException {
+        if (buffer == null) return;
+
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            buffer[count++] = '?';
+        }
+        try {
+            if (streaming) {
+                if (count > 0) stream.write(buffer, 0, count);
+                // a compressing stream writes the end of the compressed data, the stream of the servlet stays open
+                if (compressing) stream.close();
+            } else if (count >= compression.minSize() && compressible()) {
+                byte[] compressed = compression.compress(buffer, 0, count, encoding);
+                response.setContentLength(compressed.length);
+                response.getOutputStream().write(compressed);
+            } else {
+                response.setContentLength(count);
+                if (count > 0) response.getOutputStream().write(buffer, 0, count);
+            }
+        } finally {
+            // the deflater is given back even if the client is gone
+            if (compressing) compression.abort(stream);
+            release();
+        }
+    }
+
+    /**
+     * Discards the body written so far if nothing has been sent yet, a streamed body is kept.
+     */
+    void discard() {
+        if (streaming || buffer == null) return;
+
+        count = 0;
+        highSurrogate = 0;
+    }
+
+    /**
+     * Checks if a part of the body has been sent to the output stream.
+     * @return true if the body is streamed.
+     */
+    boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Discards what has not been sent of the body, and gives back the buffer and the deflater of a compressed
+     * body, without finishing it. It is called when a handler fails, the body may then be incomplete.
+     */
+    void abort() {
+        if (buffer == null) return;
+
+        count = 0;
+        highSurrogate = 0;
+        if (compressing) compression.abort(stream);
+        release();
+    }
+}
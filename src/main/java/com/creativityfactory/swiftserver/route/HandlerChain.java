@@ -0,0 +1,99 @@
+package com.creativityfactory.swiftserver.route;
+
+import com.creativityfactory.swiftserver.app.ChainedHandler;
+import com.creativityfactory.swiftserver.app.HttpRequestHandler;
+import com.creativityfactory.swiftserver.request.Request;
+import com.creativityfactory.swiftserver.response.Response;
+
+import java.util.List;
+
+/**
+ * <p>This class is responsible for compiling the middlewares of a route into a single handler. Every
+ * middleware is wrapped in a link holding the rest of the chain in a final field, so a request walks the links
+ * instead of iterating over a list.</p>
+ *
+ * <p>A {@link ChainedHandler} tells its link whether the next middleware is called by its result, the flag of
+ * the request is then neither reset nor read. Any other handler keeps the semantics of the flag: before calling
+ * it the flag is reset, and the next middleware is called only if it called {@code req.next(true)}.</p>
+ */
+public final class HandlerChain {
+    private HandlerChain() {}
+
+    /**
+     * Composes the given handlers into a single handler calling them in order.
+     *
+     * @param handlers the handlers of a route in the order they have been mapped.
+     * @return the composed handler.
+     * @throws IllegalArgumentException if there is no handler.
+     */
+    public static HttpRequestHandler compose(List<HttpRequestHandler> handlers) {
+        if (handlers.isEmpty()) throw new IllegalArgumentException("Can not compose an empty chain of handlers");
+
+        HttpRequestHandler composed = null;
+        for (int i = handlers.size() - 1; i >= 0; i--) {
+            HttpRequestHandler handler = handlers.get(i);
+            if (handler instanceof ChainedHandler) {
+                composed = new ChainedLink((ChainedHandler) handler, composed);
+            } else {
+                composed = (composed == null)? new Last(handler): new Link(handler, composed);
+            }
+        }
+
+        return composed;
+    }
+
+    /**
+     * A middleware followed by the rest of the chain.
+     */
+    private static final class Link implements HttpRequestHandler {
+        private final HttpRequestHandler handler;
+        private final HttpRequestHandler next;
+
+        private Link(HttpRequestHandler handler, HttpRequestHandler next) {
+            this.handler = handler;
+            this.next = next;
+        }
+
+        @Override
+        public void method(Request req, Response res) throws Exception {
+            req.next(false);
+            handler.method(req, res);
+            if (req.shouldContinue()) next.method(req, res);
+        }
+    }
+
+    /**
+     * A middleware giving its result, followed by the rest of the chain if any.
+     */
+    private static final class ChainedLink implements HttpRequestHandler {
+        private final ChainedHandler handler;
+        private final HttpRequestHandler next;
+
+        private ChainedLink(ChainedHandler handler, HttpRequestHandler next) {
+            this.handler = handler;
+            this.next = next;
+        }
+
+        @Override
+        public void method(Request req, Response res) throws Exception {
+            if (handler.handle(req, res) && next != null) next.method(req, res);
+        }
+    }
+
+    /**
+     * The last middleware of the chain.
+     */
+    private static final class Last implements HttpRequestHandler {
+        private final HttpRequestHandler handler;
+
+        private Last(HttpRequestHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void method(Request req, Response res) throws Exception {
+            req.next(false);
+            handler.method(req, res);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.creativityfactory.swiftserver.route;
+
+/**
+ * The http methods supported by the framework. The ordinal of a method is used as index in the dispatch
+ * table of the application.
+ */
+public enum HttpMethod {
+    GET, HEAD, POST, PUT, PATCH, DELETE, OPTIONS;
+
+    /**
+     * Returns the method of the given name as it is sent in the request line, for example "GET".
+     *
+     * @param name the name of the method.
+     * @return the method of this name, or null if the method is not supported.
+     */
+    public static HttpMethod of(String name) {
+        switch (name) {
+            case "GET": return GET;
+            case "HEAD": return HEAD;
+            case "POST": return POST;
+            case "PUT": return PUT;
+            case "PATCH": return PATCH;
+            case "DELETE": return DELETE;
+            case "OPTIONS": return OPTIONS;
+            default: return null;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.creativityfactory.swiftserver.route;
+
+/**
+ * <p>Functional interface for converting the value of a typed route parameter, for example the segment
+ * "12" of the path "/students/12" matched by the pattern "/students/:id&lt;int&gt;".</p>
+ *
+ * <p>The converter is picked when the route is registered and called by the router while matching, it
+ * receives the segment as a region of the path so it can validate it without creating a string. A segment
+ * which can not be converted makes the router try the other branches, and if none of them matches the path
+ * does not have a route.</p>
+ */
+@FunctionalInterface
+public interface ParamConverter {
+    /**
+     * Converts a segment of the path.
+     *
+     * @param path the path of the request.
+     * @param start the index of the first character of the segment.
+     * @param end the index after the last character of the segment.
+     * @return the converted value, or null if the segment is not valid for this type.
+     */
+    Object convert(CharSequence path, int start, int end);
+}
@@ -0,0 +1,120 @@
+package com.creativityfactory.swiftserver.route;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>The registry of the types of route parameters. The type of a parameter is written between angle brackets
+ * after its name in the pattern, for example "/students/:id&lt;int&gt;". The available types are:</p>
+ * <ul>
+ *     <li>{@code int}: a signed 32 bits integer, converted to {@link Integer}.</li>
+ *     <li>{@code long}: a signed 64 bits integer, converted to {@link Long}.</li>
+ *     <li>{@code uuid}: a UUID in its canonical form, converted to {@link UUID}.</li>
+ * </ul>
+ * <p>Other types can be added with {@link #register(String, ParamConverter)} before mapping the routes
+ * which use them.</p>
+ */
+public class ParamConverters {
+    public static final String INT = "int";
+    public static final String LONG = "long";
+    public static final String UUID_TYPE = "uuid";
+
+    // Long.MIN_VALUE can not be produced by a valid long segment since the parsing is limited to MIN_VALUE + 1
+    private static final long INVALID = Long.MIN_VALUE;
+    private static final Map<String, ParamConverter> converters = new ConcurrentHashMap<>();
+
+    static {
+        register(INT, (path, start, end) -> {
+            long value = parseLong(path, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            return (value == INVALID)? null: Integer.valueOf((int) value);
+        });
+        register(LONG, (path, start, end) -> {
+            long value = parseLong(path, start, end, Long.MIN_VALUE + 1, Long.MAX_VALUE);
+            return (value == INVALID)? null: Long.valueOf(value);
+        });
+        register(UUID_TYPE, ParamConverters::parseUuid);
+    }
+
+    /**
+     * Registers a converter for a type of route parameters.
+     *
+     * @param type the name of the type as it is written in the patterns.
+     * @param converter the converter of this type.
+     */
+    public static void register(String type, ParamConverter converter) {
+        converters.put(type, converter);
+    }
+
+    /**
+     * Returns the converter of the given type.
+     *
+     * @param type the name of the type.
+     * @return the converter of this type.
+     * @throws IllegalArgumentException if there is no converter for this type.
+     */
+    public static ParamConverter get(String type) {
+        ParamConverter converter = converters.get(type);
+        if (converter == null) throw new IllegalArgumentException("Unknown type of route parameter: " + type);
+
+        return converter;
+    }
+
+    /**
+     * Returns the name of the type of route parameters matching the given class, it is used to type the id
+     * placeholder of the generated REST APIs.
+     *
+     * @param clazz the class of the values.
+     * @return the name of the type, or null if the values are kept as strings.
+     */
+    public static String typeOf(Class<?> clazz) {
+        if (clazz == Integer.class || clazz == int.class) return INT;
+        if (clazz == Long.class || clazz == long.class) return LONG;
+        if (clazz == UUID.class) return UUID_TYPE;
+
+        return null;
+    }
+
+    private static long parseLong(CharSequence path, int start, int end, long min, long max) {
+        if (start >= end) return INVALID;
+
+        boolean negative = path.charAt(start) == '-';
+        int i = (negative || path.charAt(start) == '+')? start + 1: start;
+        if (i == end) return INVALID;
+
+        long limit = negative? -min: max;
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = path.charAt(i) - '0';
+            if (digit < 0 || digit > 9) return INVALID;
+            if (value > (limit - digit) / 10) return INVALID;
+            value = value * 10 + digit;
+        }
+
+        return negative? -value: value;
+    }
+
+    private static Object parseUuid(CharSequence path, int start, int end) {
+        if (end - start != 36) return null;
+
+        long most = 0;
+        long least = 0;
+        int digits = 0;
+        for (int i = start; i < end; i++) {
+            char c = path.charAt(i);
+            int offset = i - start;
+            if (offset == 8 || offset == 13 || offset == 18 || offset == 23) {
+                if (c != '-') return null;
+                continue;
+            }
+
+            int value = Character.digit(c, 16);
+            if (value < 0) return null;
+            if (digits < 16) most = (most << 4) | value;
+            else least = (least << 4) | value;
+            digits++;
+        }
+
+        return new UUID(most, least);
+    }
+}
@@ -0,0 +1,139 @@
+package com.creativityfactory.swiftserver.route;
+
+import com.creativityfactory.swiftserver.app.HttpRequestHandler;
+import com.creativityfactory.swiftserver.utils.RouteUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>A route registered in the application, which is a URL pattern with the list of handlers
+ * (middlewares) mapped to it for a specific http method.</p>
+ *
+ * <p>The names of the placeholders of the pattern are extracted once when the route is created, so
+ * the router only has to collect the values of the matched segments. A placeholder can be typed by writing
+ * its type between angle brackets, for example "/students/:id&lt;int&gt;", the converter of the type is
+ * picked here from {@link ParamConverters} and used by the router while matching.</p>
+ */
+public class Route {
+    private final String pattern;
+    private final String[] paramNames;
+    private final ParamConverter[] paramConverters;
+    private final boolean typed;
+    private final List<HttpRequestHandler> handlers;
+    private HttpRequestHandler handler;
+
+    /**
+     * Creates a route for the given URL pattern without any handler.
+     *
+     * @param pattern the URL pattern of this route, for example "/path/:id/src".
+     */
+    public Route(String pattern) {
+        this.pattern = pattern;
+        this.handlers = new ArrayList<>();
+
+        List<String> names = new ArrayList<>();
+        List<ParamConverter> converters = new ArrayList<>();
+        boolean typed = false;
+        for (String segment: RouteUtils.allSegment(pattern)) {
+            if (segment.charAt(0) != ':') continue;
+
+            names.add(paramName(segment));
+            ParamConverter converter = paramConverter(segment);
+            converters.add(converter);
+            typed |= converter != null;
+        }
+        this.paramNames = names.toArray(new String[0]);
+        this.paramConverters = converters.toArray(new ParamConverter[0]);
+        this.typed = typed;
+    }
+
+    /**
+     * Returns the name of a placeholder segment, for example "id" for ":id" or ":id&lt;int&gt;".
+     * @param segment the placeholder segment.
+     * @return the name of the placeholder.
+     */
+    static String paramName(String segment) {
+        int bracket = segment.indexOf('<');
+        return (bracket < 0)? segment.substring(1): segment.substring(1, bracket);
+    }
+
+    /**
+     * Returns the converter of the type of a placeholder segment.
+     * @param segment the placeholder segment.
+     * @return the converter of the type, or null if the placeholder is not typed.
+     * @throws IllegalArgumentException if the type is unknown or the segment is malformed.
+     */
+    static ParamConverter paramConverter(String segment) {
+        int bracket = segment.indexOf('<');
+        if (bracket < 0) return null;
+        if (segment.charAt(segment.length() - 1) != '>')
+            throw new IllegalArgumentException("Malformed typed route parameter: " + segment);
+
+        return ParamConverters.get(segment.substring(bracket + 1, segment.length() - 1).trim());
+    }
+
+    /**
+     * Returns the URL pattern of this route.
+     * @return the URL pattern of this route.
+     */
+    public String pattern() {
+        return pattern;
+    }
+
+    /**
+     * Returns the names of the placeholders of the pattern in the order they appear in.
+     * @return the names of the placeholders of the pattern.
+     */
+    public String[] paramNames() {
+        return paramNames;
+    }
+
+    /**
+     * Returns the converters of the placeholders in the order they appear in, the converter of an untyped
+     * placeholder is null.
+     * @return the converters of the placeholders.
+     */
+    public ParamConverter[] paramConverters() {
+        return paramConverters;
+    }
+
+    /**
+     * Checks if at least one placeholder of the pattern is typed.
+     * @return true if the pattern has a typed placeholder.
+     */
+    public boolean isTyped() {
+        return typed;
+    }
+
+    /**
+     * Returns the handlers mapped to this route in the order they have been added.
+     * @return the handlers mapped to this route.
+     */
+    public List<HttpRequestHandler> handlers() {
+        return handlers;
+    }
+
+    /**
+     * Appends a handler to the chain of handlers of this route.
+     * @param handler the handler to append.
+     */
+    public void addHandler(HttpRequestHandler handler) {
+        handlers.add(handler);
+    }
+
+    /**
+     * Returns the handlers of this route composed into a single handler, see {@link HandlerChain}.
+     * @return the composed handler, or null if the routes are not frozen yet.
+     */
+    public HttpRequestHandler handler() {
+        return handler;
+    }
+
+    /**
+     * Composes the handlers of this route into a single handler, a route without handlers does nothing.
+     */
+    void compile() {
+        this.handler = handlers.isEmpty()? (req, res) -> {}: HandlerChain.compose(handlers);
+    }
+}
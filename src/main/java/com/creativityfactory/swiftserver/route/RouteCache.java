@@ -0,0 +1,168 @@
+package com.creativityfactory.swiftserver.route;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>A bounded cache of resolved routes keyed by the raw request URI, it sits in front of the routers so the
+ * hot URLs such as "/students/1" are resolved without walking the trie again.</p>
+ *
+ * <p>The cache is split in segments, every segment is a least-recently-used map guarded by its own lock, so
+ * concurrent requests only contend when their URIs fall in the same segment. Only the URIs that resolve to a
+ * route are cached, a flood of unknown paths can not evict the hot ones. The hits and the misses are counted
+ * to see whether the cache helps for a given traffic.</p>
+ */
+public class RouteCache {
+    private static final HttpMethod[] METHODS = HttpMethod.values();
+    private static final int SEGMENTS = 16;
+
+    private final int maxSize;
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a cache holding at most the given number of URIs, a size of zero disables the cache.
+     * @param maxSize the maximum number of URIs to cache.
+     */
+    public RouteCache(int maxSize) {
+        this.maxSize = Math.max(maxSize, 0);
+        int segmentCount = (this.maxSize == 0)? 0: Math.min(SEGMENTS, this.maxSize);
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // spread the capacity over the segments, the total never exceeds the max size
+            segments[i] = new Segment(this.maxSize / segmentCount + ((i < this.maxSize % segmentCount)? 1: 0));
+        }
+    }
+
+    /**
+     * Returns the cached route of the given method for the given URI.
+     *
+     * @param method the http method of the request.
+     * @param uri the raw URI of the request.
+     * @param from the index where the path of the route starts in the URI.
+     * @return the cached match, or null if it is not cached.
+     */
+    public RouteMatch get(HttpMethod method, String uri, int from) {
+        if (segments.length == 0) return null;
+
+        Resolved resolved = segment(uri).get(uri);
+        RouteMatch match = (resolved == null || resolved.from != from)? null: resolved.matches[method.ordinal()];
+        if (match == null) misses.increment();
+        else hits.increment();
+
+        return match;
+    }
+
+    /**
+     * Caches the route of the given method resolved for the given URI.
+     *
+     * @param method the http method of the request.
+     * @param uri the raw URI of the request.
+     * @param from the index where the path of the route starts in the URI.
+     * @param match the resolved route, it is not cached if it is null.
+     */
+    public void put(HttpMethod method, String uri, int from, RouteMatch match) {
+        if (segments.length == 0 || match == null) return;
+
+        Segment segment = segment(uri);
+        synchronized (segment) {
+            Resolved resolved = segment.map.get(uri);
+            if (resolved == null || resolved.from != from) {
+                resolved = new Resolved(from);
+                segment.map.put(uri, resolved);
+            }
+            resolved.matches[method.ordinal()] = match;
+        }
+    }
+
+    /**
+     * Removes all the cached routes, it is called when the routes change.
+     */
+    public void clear() {
+        for (Segment segment: segments) {
+            synchronized (segment) {
+                segment.map.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns the maximum number of URIs of this cache.
+     * @return the maximum number of URIs.
+     */
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of cached URIs.
+     * @return the number of cached URIs.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment: segments) {
+            synchronized (segment) {
+                size += segment.map.size();
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Returns the number of lookups which found a cached route.
+     * @return the number of hits.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups which did not find a cached route.
+     * @return the number of misses.
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    private Segment segment(String uri) {
+        int hash = uri.hashCode();
+        hash ^= (hash >>> 16);
+
+        return segments[(hash & 0x7fffffff) % segments.length];
+    }
+
+    /**
+     * The routes resolved for one URI, indexed by the ordinal of the method.
+     */
+    private static class Resolved {
+        private final int from;
+        private final RouteMatch[] matches = new RouteMatch[METHODS.length];
+
+        private Resolved(int from) {
+            this.from = from;
+        }
+    }
+
+    /**
+     * A least-recently-used map guarded by the lock of the segment.
+     */
+    private static class Segment {
+        private final Map<String, Resolved> map;
+
+        private Segment(int capacity) {
+            this.map = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Resolved> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        private synchronized Resolved get(String uri) {
+            return map.get(uri);
+        }
+    }
+}
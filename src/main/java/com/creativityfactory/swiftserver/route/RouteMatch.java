@@ -0,0 +1,39 @@
+package com.creativityfactory.swiftserver.route;
+
+/**
+ * The result of resolving a path against a {@link Router}: the matched route together with the values of
+ * its route parameters.
+ */
+public class RouteMatch {
+    private final Route route;
+    private final RouteParams params;
+
+    public RouteMatch(Route route, RouteParams params) {
+        this.route = route;
+        this.params = params;
+    }
+
+    /**
+     * Returns the matched route.
+     * @return the matched route.
+     */
+    public Route route() {
+        return route;
+    }
+
+    /**
+     * Returns the pattern of the matched route.
+     * @return the pattern of the matched route, for example "/path/:id/src".
+     */
+    public String pattern() {
+        return route.pattern();
+    }
+
+    /**
+     * Returns a lazy view on the route parameters of the path, mapped by their names.
+     * @return the route parameters of the path.
+     */
+    public RouteParams params() {
+        return params;
+    }
+}
@@ -0,0 +1,105 @@
+package com.creativityfactory.swiftserver.route;
+
+import java.util.*;
+
+/**
+ * <p>A lazy view on the route parameters of a matched path. The router only records the offsets of the
+ * matched segments, and a parameter is cut from the path the first time it is read, so a handler that never
+ * reads a parameter never pays for it.</p>
+ *
+ * <p>This class is a read-only {@link Map}, if a name is used twice in a pattern the last value wins, as in
+ * {@link com.creativityfactory.swiftserver.utils.RouteUtils#extractParams(String, String)}.</p>
+ */
+public class RouteParams extends AbstractMap<String, String> {
+    static final RouteParams EMPTY = new RouteParams(new String[0], "", new int[0], null);
+
+    private final String[] names;
+    private final CharSequence path;
+    // start and end offset of every value: [start0, end0, start1, end1, ...]
+    private final int[] offsets;
+    // the values converted while matching the typed placeholders, null if the route is not typed
+    private final Object[] converted;
+    private String[] values;
+
+    RouteParams(String[] names, CharSequence path, int[] offsets, Object[] converted) {
+        this.names = names;
+        this.path = path;
+        this.offsets = offsets;
+        this.converted = converted;
+    }
+
+    /**
+     * Returns the value of the given parameter.
+     *
+     * @param name the name of the parameter.
+     * @return the value of the parameter, or null if the route does not have a parameter with this name.
+     */
+    public String get(String name) {
+        int index = indexOf(name);
+        if (index < 0) return null;
+
+        return value(index);
+    }
+
+    /**
+     * Returns the value of the given parameter converted by the type of its placeholder, for example an
+     * {@link Integer} for ":id&lt;int&gt;". The value of an untyped placeholder is returned as a string.
+     *
+     * @param name the name of the parameter.
+     * @return the converted value of the parameter, or null if the route does not have a parameter with this name.
+     */
+    public Object getValue(String name) {
+        int index = indexOf(name);
+        if (index < 0) return null;
+        if (converted != null && converted[index] != null) return converted[index];
+
+        return value(index);
+    }
+
+    @Override
+    public String get(Object key) {
+        return (key instanceof String)? get((String) key): null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return (key instanceof String) && indexOf((String) key) >= 0;
+    }
+
+    /**
+     * Returns the index of the given parameter in the pattern.
+     * @param name the name of the parameter.
+     * @return the index of the parameter, or -1 if the route does not have a parameter with this name.
+     */
+    int indexOf(String name) {
+        for (int i = names.length - 1; i >= 0; i--) {
+            if (names[i].equals(name)) return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the value of the parameter at the given index, the value is created on the first call.
+     * @param index the index of the parameter in the pattern.
+     * @return the value of the parameter.
+     */
+    String value(int index) {
+        if (values == null) values = new String[names.length];
+        String value = values[index];
+        if (value == null) {
+            value = path.subSequence(offsets[2 * index], offsets[2 * index + 1]).toString();
+            values[index] = value;
+        }
+
+        return value;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; i++) map.put(names[i], value(i));
+
+        return Collections.unmodifiableMap(map).entrySet();
+    }
+}
@@ -0,0 +1,165 @@
+package com.creativityfactory.swiftserver.route;
+
+/**
+ * <p>The dispatch table of the application, it holds one {@link Router} for every http method indexed by the
+ * ordinal of the {@link HttpMethod}.</p>
+ *
+ * <p>The table is filled while the application is initialized and frozen after that, any attempt to register
+ * a route after freezing it fails. When it is frozen the handlers of every route are composed into a single
+ * handler.</p>
+ *
+ * <p>The Allow header of the OPTIONS requests and of the 405 responses is computed for the path of the request,
+ * from the methods whose router matches it, so a path matched by different patterns for different methods lists
+ * all of them. The header of every combination of methods is built once.</p>
+ *
+ * <p>The resolved routes of the hot URIs are kept in a {@link RouteCache} in front of the routers, the cache
+ * is cleared whenever a route is added.</p>
+ *
+ * <p>HEAD and OPTIONS can not be registered: HEAD requests are resolved with the GET routes and OPTIONS
+ * requests are answered by the application from the Allow header of the path.</p>
+ */
+public class RouteTable {
+    private static final HttpMethod[] METHODS = HttpMethod.values();
+
+    private final Router[] routers = new Router[METHODS.length];
+    // the Allow header of every set of methods, indexed by the bits of their ordinals
+    private final String[] allowHeaders = new String[1 << METHODS.length];
+    private RouteCache cache = new RouteCache(0);
+    private boolean frozen = false;
+
+    /**
+     * Returns the route of the given pattern for the given method, it is created if it does not exist.
+     *
+     * @param method the http method of the route.
+     * @param pattern the URL pattern of the route.
+     * @return the route mapped to this pattern for this method.
+     * @throws IllegalStateException if the table is frozen.
+     * @throws IllegalArgumentException if the method is HEAD or OPTIONS.
+     */
+    public Route add(HttpMethod method, String pattern) {
+        if (frozen) throw new IllegalStateException("The routes can not be changed after the initialization of the application");
+        if (method == HttpMethod.HEAD || method == HttpMethod.OPTIONS)
+            throw new IllegalArgumentException("The method " + method + " is answered automatically by the application");
+
+        Router router = routers[method.ordinal()];
+        if (router == null) {
+            router = new Router();
+            routers[method.ordinal()] = router;
+        }
+        cache.clear();
+
+        return router.add(pattern);
+    }
+
+    /**
+     * Replaces the route cache by a new one of the given size, a size of zero disables the cache.
+     * @param maxSize the maximum number of URIs to cache.
+     */
+    public void setCacheSize(int maxSize) {
+        this.cache = new RouteCache(maxSize);
+    }
+
+    /**
+     * Returns the cache of the resolved routes, mainly for reading its hits and misses.
+     * @return the cache of the resolved routes.
+     */
+    public RouteCache cache() {
+        return cache;
+    }
+
+    /**
+     * Resolves the given URI to the route of the given method, looking first in the route cache.
+     *
+     * @param method the http method of the request.
+     * @param uri the raw URI of the request.
+     * @param from the index where the path of the route starts in the URI, after the context path and the servlet path.
+     * @return the matched route with its parameters, or null if there is no route for this method and URI.
+     */
+    public RouteMatch resolve(HttpMethod method, String uri, int from) {
+        RouteMatch match = cache.get(method, uri, from);
+        if (match == null) {
+            match = match(method, uri, from, uri.length());
+            cache.put(method, uri, from, match);
+        }
+
+        return match;
+    }
+
+    /**
+     * Freezes this table and composes the handlers of every route.
+     */
+    public void freeze() {
+        for (Router router: routers) {
+            if (router == null) continue;
+
+            for (Route route: router.routes()) route.compile();
+        }
+
+        frozen = true;
+    }
+
+    /**
+     * Checks if this table is frozen.
+     * @return true if no route can be registered anymore.
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Resolves a region of the given path to the route of the given method. HEAD is resolved with the GET routes.
+     *
+     * @param method the http method of the request.
+     * @param path the path of the request.
+     * @param from the index of the first character of the region.
+     * @param to the index after the last character of the region.
+     * @return the matched route with its parameters, or null if there is no route for this method and path.
+     */
+    public RouteMatch match(HttpMethod method, CharSequence path, int from, int to) {
+        Router router = routers[(method == HttpMethod.HEAD)? HttpMethod.GET.ordinal(): method.ordinal()];
+        if (router == null) return null;
+
+        return router.match(path, from, to);
+    }
+
+    /**
+     * Returns the value of the Allow header for a region of the given path: the methods whose router matches
+     * the path, with HEAD when GET matches, and OPTIONS.
+     *
+     * @param path the path of the request.
+     * @param from the index of the first character of the region.
+     * @param to the index after the last character of the region.
+     * @return the allowed methods of this path, or null if there is no route for this path.
+     */
+    public String allow(CharSequence path, int from, int to) {
+        int methods = 0;
+        for (HttpMethod method: METHODS) {
+            Router router = routers[method.ordinal()];
+            if (router != null && router.match(path, from, to) != null) methods |= 1 << method.ordinal();
+        }
+        if (methods == 0) return null;
+
+        String allow = allowHeaders[methods];
+        if (allow == null) {
+            allow = allowedMethods(methods);
+            allowHeaders[methods] = allow;
+        }
+
+        return allow;
+    }
+
+    private static String allowedMethods(int methods) {
+        StringBuilder allow = new StringBuilder();
+        for (HttpMethod method: METHODS) {
+            if ((methods & (1 << method.ordinal())) == 0) continue;
+
+            if (allow.length() > 0) allow.append(", ");
+            allow.append(method.name());
+            if (method == HttpMethod.GET) allow.append(", ").append(HttpMethod.HEAD.name());
+        }
+        if (allow.length() > 0) allow.append(", ");
+        allow.append(HttpMethod.OPTIONS.name());
+
+        return allow.toString();
+    }
+}
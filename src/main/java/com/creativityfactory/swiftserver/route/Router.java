@@ -0,0 +1,268 @@
+package com.creativityfactory.swiftserver.route;
+
+import com.creativityfactory.swiftserver.utils.PathSegments;
+
+import java.util.*;
+
+/**
+ * <p>This class is responsible for resolving a path to its route. The routes are compiled into a trie
+ * of segments, so resolving a path costs a walk proportional to the number of its segments instead of
+ * testing every registered pattern.</p>
+ *
+ * <p>On every level a static segment has the precedence over a placeholder, and the router backtracks to
+ * the placeholder when the static branch does not lead to a route. For example with the patterns
+ * "/users/new" and "/users/:id" the path "/users/new" resolves to the first one and "/users/1" to
+ * the second one.</p>
+ *
+ * <p>Matching does not split the path: its segments are scanned into a per-thread {@link PathSegments} and
+ * compared in place, and the values of the parameters are exposed lazily through {@link RouteParams}.</p>
+ *
+ * <p>A typed placeholder such as ":id&lt;int&gt;" only matches the segments accepted by its
+ * {@link ParamConverter}, the converted value is kept with the match. On the same level the typed placeholders
+ * are tried before the untyped one.</p>
+ */
+public class Router {
+    private static final ThreadLocal<MatchState> STATE = ThreadLocal.withInitial(MatchState::new);
+
+    private final Node root = new Node();
+    private final Map<String, Route> routes = new LinkedHashMap<>();
+    private int maxParams = 0;
+
+    /**
+     * Returns the route of the given pattern, it is created and inserted in the trie if it does not exist.
+     *
+     * @param pattern The URL pattern of the route.
+     * @return The route mapped to this pattern.
+     */
+    public Route add(String pattern) {
+        Route route = routes.get(pattern);
+        if (route != null) return route;
+
+        route = new Route(pattern);
+        PathSegments segments = new PathSegments().reset(pattern);
+        Node node = root;
+        int paramIndex = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            if (segments.firstChar(i) == ':') {
+                node = node.addParam(route.paramConverters()[paramIndex++]);
+            } else {
+                node = node.addStatic(segments.segment(i));
+            }
+        }
+        // the first registered pattern wins for the same shape, e.g. "/users/:id" and "/users/:userId"
+        if (node.route == null) node.route = route;
+
+        maxParams = Math.max(maxParams, route.paramNames().length);
+        routes.put(pattern, route);
+
+        return route;
+    }
+
+    /**
+     * Returns all the routes of this router in the order they have been registered.
+     * @return all the routes of this router.
+     */
+    public Collection<Route> routes() {
+        return routes.values();
+    }
+
+    /**
+     * Resolves the given path to its route and extracts the values of the route parameters.
+     *
+     * @param path The path of the request.
+     * @return The matched route with its parameters, or null if there is no route for this path.
+     */
+    public RouteMatch match(CharSequence path) {
+        return match(path, 0, path.length());
+    }
+
+    /**
+     * Resolves a region of the given path to its route, for example the request URI without the context
+     * path and the servlet path.
+     *
+     * @param path The path of the request.
+     * @param from The index of the first character of the region.
+     * @param to The index after the last character of the region.
+     * @return The matched route with its parameters, or null if there is no route for this path.
+     */
+    public RouteMatch match(CharSequence path, int from, int to) {
+        MatchState state = STATE.get();
+        PathSegments segments = state.segments.reset(path, from, to);
+        // index of the matched segment and converted value of every parameter
+        if (state.paramSegments.length < maxParams) {
+            state.paramSegments = new int[maxParams];
+            state.paramValues = new Object[maxParams];
+        }
+
+        Route route = find(root, segments, 0, state, 0);
+        if (route == null) return null;
+
+        int paramCount = route.paramNames().length;
+        if (paramCount == 0) return new RouteMatch(route, RouteParams.EMPTY);
+
+        int[] offsets = new int[2 * paramCount];
+        for (int i = 0; i < paramCount; i++) {
+            offsets[2 * i] = segments.start(state.paramSegments[i]);
+            offsets[2 * i + 1] = segments.end(state.paramSegments[i]);
+        }
+        Object[] converted = null;
+        if (route.isTyped()) {
+            converted = new Object[paramCount];
+            System.arraycopy(state.paramValues, 0, converted, 0, paramCount);
+        }
+
+        return new RouteMatch(route, new RouteParams(route.paramNames(), path, offsets, converted));
+    }
+
+    /**
+     * Checks if a path of the given pattern can be matched by a route of this router whatever the values of its
+     * placeholders, for example "/users/:id&lt;int&gt;" is accepted by a router holding "/users/:userId".
+     *
+     * @param pattern the URL pattern to check.
+     * @return true if this router has a route for the paths of this pattern.
+     */
+    public boolean accepts(String pattern) {
+        return accepts(root, new PathSegments().reset(pattern), 0);
+    }
+
+    private boolean accepts(Node node, PathSegments segments, int index) {
+        if (index == segments.size()) return node.route != null;
+
+        boolean isParam = segments.firstChar(index) == ':';
+        if (!isParam) {
+            Node child = node.findStatic(segments, index);
+            if (child != null && accepts(child, segments, index + 1)) return true;
+        }
+        for (int i = 0; i < node.paramCount; i++) {
+            ParamConverter converter = node.paramConverters[i];
+            boolean matches = isParam
+                    || converter == null
+                    || converter.convert(segments.path(), segments.start(index), segments.end(index)) != null;
+            if (matches && accepts(node.paramNodes[i], segments, index + 1)) return true;
+        }
+
+        return false;
+    }
+
+    private Route find(Node node, PathSegments segments, int index, MatchState state, int paramIndex) {
+        if (index == segments.size()) return node.route;
+
+        Node child = node.findStatic(segments, index);
+        if (child != null) {
+            Route route = find(child, segments, index + 1, state, paramIndex);
+            if (route != null) return route;
+        }
+
+        for (int i = 0; i < node.paramCount; i++) {
+            ParamConverter converter = node.paramConverters[i];
+            Object value = null;
+            if (converter != null) {
+                value = converter.convert(segments.path(), segments.start(index), segments.end(index));
+                if (value == null) continue;
+            }
+
+            state.paramSegments[paramIndex] = index;
+            state.paramValues[paramIndex] = value;
+            Route route = find(node.paramNodes[i], segments, index + 1, state, paramIndex + 1);
+            if (route != null) return route;
+        }
+
+        return null;
+    }
+
+    /**
+     * The scratch space of the matching, reused by every match done by the same thread.
+     */
+    private static class MatchState {
+        private final PathSegments segments = new PathSegments();
+        private int[] paramSegments = new int[4];
+        private Object[] paramValues = new Object[4];
+    }
+
+    /**
+     * A node of the trie, it represents one segment of one or more patterns. The static children are kept
+     * in an open-addressing table keyed by {@link String#hashCode()}, so a segment of the path can be looked
+     * up by its offsets without creating a string.
+     */
+    private static class Node {
+        private String[] keys = new String[4];
+        private Node[] children = new Node[4];
+        private int staticCount;
+        // the placeholders of this level, the typed ones first and the untyped one (null converter) last
+        private ParamConverter[] paramConverters = new ParamConverter[0];
+        private Node[] paramNodes = new Node[0];
+        private int paramCount;
+        private Route route;
+
+        private Node addParam(ParamConverter converter) {
+            for (int i = 0; i < paramCount; i++) {
+                if (paramConverters[i] == converter) return paramNodes[i];
+            }
+
+            int position = paramCount;
+            if (converter != null && paramCount > 0 && paramConverters[paramCount - 1] == null) position--;
+
+            ParamConverter[] converters = new ParamConverter[paramCount + 1];
+            Node[] nodes = new Node[paramCount + 1];
+            System.arraycopy(paramConverters, 0, converters, 0, position);
+            System.arraycopy(paramNodes, 0, nodes, 0, position);
+            System.arraycopy(paramConverters, position, converters, position + 1, paramCount - position);
+            System.arraycopy(paramNodes, position, nodes, position + 1, paramCount - position);
+
+            Node node = new Node();
+            converters[position] = converter;
+            nodes[position] = node;
+            paramConverters = converters;
+            paramNodes = nodes;
+            paramCount++;
+
+            return node;
+        }
+
+        private Node addStatic(String segment) {
+            int mask = keys.length - 1;
+            for (int i = segment.hashCode() & mask; keys[i] != null; i = (i + 1) & mask) {
+                if (keys[i].equals(segment)) return children[i];
+            }
+
+            // keep the table at most half full
+            if (2 * (staticCount + 1) > keys.length) grow();
+
+            Node node = new Node();
+            insert(segment, node);
+            staticCount++;
+
+            return node;
+        }
+
+        private Node findStatic(PathSegments segments, int index) {
+            if (staticCount == 0) return null;
+
+            int mask = keys.length - 1;
+            int hash = segments.segmentHash(index);
+            for (int i = hash & mask; keys[i] != null; i = (i + 1) & mask) {
+                if (keys[i].hashCode() == hash && segments.segmentEquals(index, keys[i])) return children[i];
+            }
+
+            return null;
+        }
+
+        private void grow() {
+            String[] oldKeys = keys;
+            Node[] oldChildren = children;
+            keys = new String[oldKeys.length * 2];
+            children = new Node[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) insert(oldKeys[i], oldChildren[i]);
+            }
+        }
+
+        private void insert(String segment, Node node) {
+            int mask = keys.length - 1;
+            int i = segment.hashCode() & mask;
+            while (keys[i] != null) i = (i + 1) & mask;
+            keys[i] = segment;
+            children[i] = node;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.creativityfactory.swiftserver.utils;
+
+/**
+ * <p>This class holds one byte buffer and one char buffer per thread, they are used as the working buffers of
+ * the copy loops of the framework instead of allocating a new buffer for every request.</p>
+ *
+ * <p>A buffer must only be used inside the method which took it, it must not be stored nor passed to code
+ * which may take the same buffer again.</p>
+ */
+public final class BufferPool {
+    /**
+     * The size of the pooled buffers.
+     */
+    public static final int BUFFER_SIZE = 8192;
+
+    private static final ThreadLocal<byte[]> bytes = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+    private static final ThreadLocal<char[]> chars = ThreadLocal.withInitial(() -> new char[BUFFER_SIZE]);
+
+    private BufferPool() {}
+
+    /**
+     * Returns the byte buffer of the current thread.
+     * @return a byte buffer of {@link #BUFFER_SIZE} bytes.
+     */
+    public static byte[] bytes() {
+        return bytes.get();
+    }
+
+    /**
+     * Returns the char buffer of the current thread.
+     * @return a char buffer of {@link #BUFFER_SIZE} chars.
+     */
+    public static char[] chars() {
+        return chars.get();
+    }
+}
@@ -1,6 +1,7 @@
 package com.creativityfactory.swiftserver.utils;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.Arrays;
 import java.util.List;
 
@@ -47,4 +48,34 @@ public class FieldUtils {
 
         return oldObj;
     }
-}
\ No newline at end of file
+
+    /**
+     * Merges the fields of an old object into a new object of the same class: the id and the fields which are not
+     * set by the new object take the values of the old object. Unlike {@link #updateFields(Object, Object)}, the
+     * old object is not modified, so it can be an entity shared by the readers of a data source.
+     *
+     * @param oldObj the old object, it is not modified
+     * @param newObj the new object containing the updated field values, it receives the other values
+     * @return the merged new object or null if the classes of the old and new objects do not match
+     */
+    public static Object mergeFields(Object oldObj, Object newObj) {
+        if (oldObj.getClass() != newObj.getClass()) return null;
+
+        Class<?> model = oldObj.getClass();
+        Field idField = IdUtils.getIdField(model);
+        for (Field field: model.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) continue;
+            try {
+                field.setAccessible(true);
+                if (field.equals(idField) || field.get(newObj) == null) {
+                    field.set(newObj, field.get(oldObj));
+                }
+            } catch (Exception exception) {
+                exception.printStackTrace();
+                return null;
+            }
+        }
+
+        return newObj;
+    }
+}
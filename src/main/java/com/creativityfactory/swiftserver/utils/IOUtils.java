@@ -2,22 +2,45 @@ package com.creativityfactory.swiftserver.utils;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
-import java.util.stream.Stream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 
 /**
  * Utility class for input/output operations.
  */
 public class IOUtils {
     /**
-     * Converts the contents of a BufferedReader object to a string.
+     * Converts the contents of a BufferedReader object to a string, the line separators are kept as they are.
      *
      * @param reader a BufferedReader object
      * @return a string containing the contents of the BufferedReader object
+     * @throws UncheckedIOException if there is an error reading the buffer
      */
     public static String fromBufferToString(BufferedReader reader) {
-        Stream<String> stream = reader.lines();
+        try {
+            return readAll(reader);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
 
-        return stream.reduce("", (acc, ele) -> acc + ele);
+    /**
+     * Reads all the characters of the given reader into a string, using the char buffer of the current thread.
+     *
+     * @param reader the reader to consume, it is not closed
+     * @return a string containing all the characters of the reader
+     * @throws IOException if there is an error reading the characters
+     */
+    public static String readAll(Reader reader) throws IOException {
+        char[] buffer = BufferPool.chars();
+        StringBuilder builder = new StringBuilder();
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            builder.append(buffer, 0, read);
+        }
+
+        return builder.toString();
     }
 
     /**
@@ -30,12 +53,9 @@ public class IOUtils {
     public static String readFile(String path) throws IOException {
         File file = new File(path);
 
-        BufferedReader reader = new BufferedReader
-                (new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
-        String lines = reader.lines().reduce("", (acc, ele) -> acc + ele);
-        reader.close();
-
-        return lines;
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return readAll(reader);
+        }
     }
 
     /**
@@ -50,6 +70,51 @@ public class IOUtils {
         myWriter.write(data);
         myWriter.close();
     }
+
+    /**
+     * Writes the contents of a file to a stream.
+     */
+    public interface StreamWriter {
+        /**
+         * @param stream the stream of the file, it is buffered and closed by the caller
+         * @throws IOException if there is an error writing to the stream
+         */
+        void writeTo(OutputStream stream) throws IOException;
+    }
+
+    /**
+     * Replaces the contents of a file durably: the data is written to a temporary file next to it, flushed to the
+     * disk, then the temporary file is renamed over the file, so the file has either its old or its new contents
+     * even if the process stops while writing.
+     *
+     * @param data the data to write to the file, in UTF-8
+     * @param path the path to the file to write to
+     * @throws IOException if there is an error writing to the file
+     */
+    public static void writeFileAtomically(String data, String path) throws IOException {
+        writeFileAtomically(path, stream -> stream.write(data.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Replaces the contents of a file durably with the bytes written by the given writer, like
+     * {@link #writeFileAtomically(String, String)}.
+     *
+     * @param path the path to the file to write to
+     * @param writer writes the new contents of the file
+     * @throws IOException if there is an error writing to the file
+     */
+    public static void writeFileAtomically(String path, StreamWriter writer) throws IOException {
+        Path target = new File(path).getAbsoluteFile().toPath();
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try (FileOutputStream stream = new FileOutputStream(temporary.toFile(), false)) {
+            BufferedOutputStream buffered = new BufferedOutputStream(stream, 64 * 1024);
+            writer.writeTo(buffered);
+            buffered.flush();
+            stream.getFD().sync();
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
 }
 
 
@@ -114,6 +114,19 @@ public class IdUtils {
      * @return a JSON string representing the same object, but with Integer fields properly converted and BelongTo fields replaced with their referenced objects.
      */
     public static String mapObjectToId(String json, Class<?> clazz) {
+        return mapObjectToId(json, clazz, true);
+    }
+
+    /**
+     * Maps an object's ID field to its corresponding value in a JSON string, and converts Integer fields from Double to Integer.
+     *
+     * @param json a JSON string representing an object, which must contain the ID field value.
+     * @param clazz the class of the object that the JSON string represents.
+     * @param resolve whether the BelongTo fields are replaced with their referenced objects, otherwise they are replaced
+     *                with an object holding only the id, so no other model is read.
+     * @return a JSON string representing the same object, but with Integer fields properly converted and BelongTo fields replaced.
+     */
+    public static String mapObjectToId(String json, Class<?> clazz, boolean resolve) {
         Gson gson = new Gson();
         List<Field> fields = FieldUtils.getAllFields(clazz);
         // deserialize thw incoming json
@@ -131,7 +144,15 @@ public class IdUtils {
                 Integer integerValue = doubleValue.intValue();
                 deserializedJson.put(fieldName, integerValue);
             }
-            if(field.isAnnotationPresent(BelongTo.class)){
+            if (field.isAnnotationPresent(BelongTo.class) && !resolve) {
+                Object id = deserializedJson.get(fieldName);
+                Field idField = getIdField(field.getType());
+                if (id != null && idField != null) {
+                    Map<String, Object> reference = new HashMap<>();
+                    reference.put(idField.isAnnotationPresent(SerializedName.class)? idField.getAnnotation(SerializedName.class).value(): idField.getName(), id);
+                    deserializedJson.put(fieldName, reference);
+                }
+            } else if(field.isAnnotationPresent(BelongTo.class)){
                 try {
                     Persistence<Object> dataSrc = SingletonDataSource.getInstance(field.getType());
 
@@ -158,7 +179,6 @@ public class IdUtils {
      */
     public static Map<String, Object> mapIdToObject(Object obj , Class<?> clazz){
         if (obj == null) return null;
-        Gson gson = new Gson();
         List<Field> fields = FieldUtils.getAllFields(clazz);
         Map<String, Object> serializedObject = new HashMap<>();
         boolean flag = false;
@@ -0,0 +1,181 @@
+package com.creativityfactory.swiftserver.utils;
+
+import java.util.Arrays;
+
+/**
+ * <p>A reusable container of the segments of a path. Instead of splitting the path into new strings, it
+ * only records the start and end offsets of every segment inside the scanned {@link CharSequence}, so the
+ * same instance can be reset for every incoming request without allocating.</p>
+ *
+ * <p>Empty segments are ignored in the same way as {@link RouteUtils#allSegment(String)}, so "/users//1/"
+ * has two segments: "users" and "1".</p>
+ */
+public class PathSegments {
+    private CharSequence path;
+    private int[] starts;
+    private int[] ends;
+    private int count;
+
+    public PathSegments() {
+        this(8);
+    }
+
+    /**
+     * Creates an empty container able to hold the given number of segments before growing.
+     * @param capacity the initial number of segments.
+     */
+    public PathSegments(int capacity) {
+        starts = new int[capacity];
+        ends = new int[capacity];
+    }
+
+    /**
+     * Scans the whole given path and records the offsets of its segments.
+     *
+     * @param path the path to scan, may be null.
+     * @return this container for chaining.
+     */
+    public PathSegments reset(CharSequence path) {
+        return reset(path, 0, (path == null)? 0: path.length());
+    }
+
+    /**
+     * Scans the given region of the path and records the offsets of its segments.
+     *
+     * @param path the path to scan, may be null.
+     * @param from the index of the first character of the region.
+     * @param to the index after the last character of the region.
+     * @return this container for chaining.
+     */
+    public PathSegments reset(CharSequence path, int from, int to) {
+        this.path = path;
+        this.count = 0;
+        if (path == null) return this;
+
+        int start = from;
+        for (int i = from; i <= to; i++) {
+            if (i == to || path.charAt(i) == '/') {
+                if (i > start) add(start, i);
+                start = i + 1;
+            }
+        }
+
+        return this;
+    }
+
+    private void add(int start, int end) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    /**
+     * Returns the scanned path.
+     * @return the scanned path.
+     */
+    public CharSequence path() {
+        return path;
+    }
+
+    /**
+     * Returns the number of segments of the scanned path.
+     * @return the number of segments.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the offset of the first character of the segment at the given index.
+     * @param index the index of the segment.
+     * @return the start offset of the segment.
+     */
+    public int start(int index) {
+        return starts[index];
+    }
+
+    /**
+     * Returns the offset after the last character of the segment at the given index.
+     * @param index the index of the segment.
+     * @return the end offset of the segment.
+     */
+    public int end(int index) {
+        return ends[index];
+    }
+
+    /**
+     * Returns the first character of the segment at the given index.
+     * @param index the index of the segment.
+     * @return the first character of the segment.
+     */
+    public char firstChar(int index) {
+        return path.charAt(starts[index]);
+    }
+
+    /**
+     * Checks if the segment at the given index has the same characters as the given string.
+     *
+     * @param index the index of the segment.
+     * @param str the string to compare with.
+     * @return true if the segment is equal to the given string.
+     */
+    public boolean segmentEquals(int index, String str) {
+        int start = starts[index];
+        int length = ends[index] - start;
+        if (length != str.length()) return false;
+
+        for (int i = 0; i < length; i++) {
+            if (path.charAt(start + i) != str.charAt(i)) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks if the segment at the given index of this path is equal to a segment of another path.
+     *
+     * @param index the index of the segment in this path.
+     * @param other the other path.
+     * @param otherIndex the index of the segment in the other path.
+     * @return true if both segments have the same characters.
+     */
+    public boolean segmentEquals(int index, PathSegments other, int otherIndex) {
+        int start = starts[index];
+        int length = ends[index] - start;
+        int otherStart = other.starts[otherIndex];
+        if (length != other.ends[otherIndex] - otherStart) return false;
+
+        for (int i = 0; i < length; i++) {
+            if (path.charAt(start + i) != other.path.charAt(otherStart + i)) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Computes the hash of the segment at the given index, it is the same value as {@link String#hashCode()}
+     * of the segment, so a segment can be looked up in a table of strings without creating it.
+     *
+     * @param index the index of the segment.
+     * @return the hash of the segment.
+     */
+    public int segmentHash(int index) {
+        int hash = 0;
+        for (int i = starts[index], end = ends[index]; i < end; i++) hash = 31 * hash + path.charAt(i);
+
+        return hash;
+    }
+
+    /**
+     * Creates a string of the segment at the given index.
+     * @param index the index of the segment.
+     * @return the segment as a string.
+     */
+    public String segment(int index) {
+        return path.subSequence(starts[index], ends[index]).toString();
+    }
+}
@@ -16,13 +16,11 @@ public class RouteUtils {
      * @return The list of URL segments.
      */
     public static List<String> allSegment(String url) {
-        if (url == null) return new ArrayList<>();
-        String[] segs = url.split("/");
-        List<String> segments = new ArrayList<>();
+        PathSegments segs = new PathSegments().reset(url);
+        List<String> segments = new ArrayList<>(segs.size());
 
-        for (String segment: segs)
-            if ((segment != null) && !segment.equals(""))
-                segments.add(segment);
+        for (int i = 0; i < segs.size(); i++)
+            segments.add(segs.segment(i));
 
         return segments;
     }
@@ -37,13 +35,13 @@ public class RouteUtils {
      * @return A boolean indicating whether the URL matches the pattern.
      */
     public static boolean isUrlPatternMatched(String pattern, String url) {
-        List<String> urlSegments = allSegment(url);
-        List<String> patternSegments = allSegment(pattern);
+        PathSegments urlSegments = new PathSegments().reset(url);
+        PathSegments patternSegments = new PathSegments().reset(pattern);
 
         if (urlSegments.size() != patternSegments.size()) return false;
 
         for (int i = 0; i < urlSegments.size(); i++) {
-            if ((patternSegments.get(i).charAt(0) != ':') && !patternSegments.get(i).equals(urlSegments.get(i))) return false;
+            if ((patternSegments.firstChar(i) != ':') && !patternSegments.segmentEquals(i, urlSegments, i)) return false;
         }
 
         return true;
@@ -61,12 +59,13 @@ public class RouteUtils {
     public static Map<String, String> extractParams(String pattern, String url) {
         Map<String, String> paramsMap = new HashMap<>();
 
-        List<String> patternSegments = allSegment(pattern);
-        List<String> urlSegments = allSegment(url);
+        PathSegments patternSegments = new PathSegments().reset(pattern);
+        PathSegments urlSegments = new PathSegments().reset(url);
+        if (urlSegments.size() != patternSegments.size()) return paramsMap;
 
         for (int i = 0; i < urlSegments.size(); i++) {
-            if (patternSegments.get(i).charAt(0) == ':') paramsMap.put(patternSegments.get(i).substring(1), urlSegments.get(i));
-            else if (!patternSegments.get(i).equals(urlSegments.get(i))) return new HashMap<>();
+            if (patternSegments.firstChar(i) == ':') paramsMap.put(pattern.substring(patternSegments.start(i) + 1, patternSegments.end(i)), urlSegments.segment(i));
+            else if (!patternSegments.segmentEquals(i, urlSegments, i)) return new HashMap<>();
         }
 
         return paramsMap;
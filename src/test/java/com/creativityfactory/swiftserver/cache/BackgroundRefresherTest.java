@@ -0,0 +1,51 @@
+package com.creativityfactory.swiftserver.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackgroundRefresherTest {
+    @Test
+    public void testKeyIsRefreshedOnceAtATime() throws Exception {
+        BackgroundRefresher refresher = new BackgroundRefresher(2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        try {
+            assertTrue(refresher.refresh("key", () -> {
+                calls.incrementAndGet();
+                release.await();
+                done.countDown();
+                return null;
+            }));
+            assertFalse(refresher.refresh("key", calls::incrementAndGet));
+            assertTrue(refresher.isRefreshing("key"));
+
+            release.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 100 && refresher.isRefreshing("key"); i++) Thread.sleep(10);
+
+            assertFalse(refresher.isRefreshing("key"));
+            assertEquals(1, calls.get());
+        } finally {
+            refresher.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailedRefreshReleasesKey() throws Exception {
+        BackgroundRefresher refresher = new BackgroundRefresher(1);
+        try {
+            assertTrue(refresher.refresh("key", () -> { throw new IllegalStateException("data source down"); }));
+            for (int i = 0; i < 100 && refresher.isRefreshing("key"); i++) Thread.sleep(10);
+
+            assertFalse(refresher.isRefreshing("key"));
+        } finally {
+            refresher.shutdown();
+        }
+    }
+}
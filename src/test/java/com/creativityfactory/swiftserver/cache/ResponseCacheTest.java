@@ -0,0 +1,48 @@
+package com.creativityfactory.swiftserver.cache;
+
+import com.creativityfactory.swiftserver.response.EncodedBody;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+    private static EncodedBody body(int size) {
+        return new EncodedBody(new byte[size], "application/json");
+    }
+
+    @Test
+    public void testKeyNormalizesQuery() {
+        assertEquals(ResponseCache.key("/students/", "/students", "b=2&a=1"), ResponseCache.key("/students/", "/students", "a=1&&b=2"));
+        assertEquals("/students/ /students", ResponseCache.key("/students/", "/students", null));
+    }
+
+    @Test
+    public void testStaleEntryIsMissed() {
+        ResponseCache cache = new ResponseCache(1024 * 1024);
+        cache.put("key", "\"a-1\"", body(10));
+
+        assertNotNull(cache.get("key", "\"a-1\""));
+        assertNull(cache.get("key", "\"a-2\""));
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    public void testCacheIsBoundedByBytes() {
+        ResponseCache cache = new ResponseCache(16 * 100);
+        for (int i = 0; i < 1000; i++) cache.put("key" + i, "\"t\"", body(30));
+
+        assertTrue(cache.bytes() <= cache.maxBytes());
+        cache.put("large", "\"t\"", body(cache.maxEntryBytes() + 1));
+        assertNull(cache.get("large", "\"t\""));
+    }
+
+    @Test
+    public void testZeroSizeDisablesCache() {
+        ResponseCache cache = new ResponseCache(0);
+        cache.put("key", "\"t\"", body(1));
+
+        assertFalse(cache.isEnabled());
+        assertNull(cache.get("key", "\"t\""));
+    }
+}
@@ -0,0 +1,34 @@
+package com.creativityfactory.swiftserver.cache;
+
+import com.creativityfactory.swiftserver.annotation.CachePolicy;
+import com.creativityfactory.swiftserver.client.models.Student;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteCachePolicyTest {
+    @CachePolicy(maxAge = 86400, staleWhileRevalidate = 60)
+    static class Country {}
+
+    @CachePolicy(maxAge = 10, privateCache = true)
+    static class Profile {}
+
+    @CachePolicy(noStore = true)
+    static class Payment {}
+
+    @Test
+    public void testHeaderIsBuiltFromAnnotation() {
+        assertEquals("public, max-age=86400, stale-while-revalidate=60", RouteCachePolicy.of(Country.class).cacheControl());
+        assertEquals("private, max-age=10", RouteCachePolicy.of(Profile.class).cacheControl());
+        assertEquals("no-store", RouteCachePolicy.of(Payment.class).cacheControl());
+        assertSame(RouteCachePolicy.DEFAULT, RouteCachePolicy.of(Student.class));
+    }
+
+    @Test
+    public void testServerCacheIsOnlyForSharedResponses() {
+        assertTrue(RouteCachePolicy.of(Country.class).isServerCacheable());
+        assertEquals(86400_000L, RouteCachePolicy.of(Country.class).ttlMillis());
+        assertFalse(RouteCachePolicy.of(Profile.class).isServerCacheable());
+        assertFalse(RouteCachePolicy.of(Payment.class).isServerCacheable());
+    }
+}
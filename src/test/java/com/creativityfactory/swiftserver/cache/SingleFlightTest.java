@@ -0,0 +1,61 @@
+package com.creativityfactory.swiftserver.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+    @Test
+    public void testConcurrentCallsShareOneComputation() throws Exception {
+        SingleFlight<Object> flights = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Callable<Object> computation = () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            release.await();
+            return new Object();
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<Object> first = executor.submit(() -> flights.run("key", computation));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<Object> second = executor.submit(() -> flights.run("key", computation));
+            Future<Object> third = executor.submit(() -> flights.run("key", computation));
+            // let the waiters join the flight before it completes
+            Thread.sleep(50);
+            release.countDown();
+
+            Object value = first.get(5, TimeUnit.SECONDS);
+            assertSame(value, second.get(5, TimeUnit.SECONDS));
+            assertSame(value, third.get(5, TimeUnit.SECONDS));
+            assertEquals(1, calls.get());
+            assertEquals(0, flights.inFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testKeyIsComputedAgainAfterItsFlight() throws Exception {
+        SingleFlight<Integer> flights = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals(1, flights.run("key", calls::incrementAndGet));
+        assertEquals(2, flights.run("key", calls::incrementAndGet));
+        assertEquals(0, flights.inFlight());
+    }
+
+    @Test
+    public void testExceptionIsThrownAndKeyIsRemoved() {
+        SingleFlight<Object> flights = new SingleFlight<>();
+
+        assertThrows(IllegalStateException.class, () -> flights.run("key", () -> { throw new IllegalStateException(); }));
+        assertEquals(0, flights.inFlight());
+    }
+}
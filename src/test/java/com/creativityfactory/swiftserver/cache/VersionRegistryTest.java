@@ -0,0 +1,56 @@
+package com.creativityfactory.swiftserver.cache;
+
+import com.creativityfactory.swiftserver.client.models.Note;
+import com.creativityfactory.swiftserver.client.models.Student;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionRegistryTest {
+    @Test
+    public void testWriteChangesOnlyItsEntityAndCollection() {
+        VersionRegistry registry = new VersionRegistry();
+        ModelVersion students = registry.of(Student.class);
+        String collection = students.collectionTag();
+        String first = students.entityTag(1);
+        String second = students.entityTag(2);
+
+        students.bump(1);
+
+        assertNotEquals(collection, students.collectionTag());
+        assertNotEquals(first, students.entityTag(1));
+        assertEquals(second, students.entityTag(2));
+        assertEquals(0, registry.of(Note.class).version());
+        assertSame(students, registry.of(Student.class));
+    }
+
+    @Test
+    public void testConcurrentWritesAreAllCounted() throws Exception {
+        ModelVersion students = new VersionRegistry().of(Student.class);
+        long created = students.lastModified();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            int id = i;
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) students.bump(id);
+            });
+            threads[i].start();
+        }
+        for (Thread thread: threads) thread.join();
+
+        assertEquals(8000, students.version());
+        assertTrue(students.lastModified() >= created);
+        for (int i = 0; i < threads.length; i++) assertTrue(students.versionOf(i) >= 1000);
+    }
+
+    @Test
+    public void testMatches() {
+        String tag = "\"abc-1\"";
+
+        assertTrue(VersionRegistry.matches("\"abc-1\"", tag));
+        assertTrue(VersionRegistry.matches("\"abc-0\", W/\"abc-1\"", tag));
+        assertTrue(VersionRegistry.matches("*", tag));
+        assertFalse(VersionRegistry.matches("\"abc-0\"", tag));
+        assertFalse(VersionRegistry.matches(null, tag));
+    }
+}
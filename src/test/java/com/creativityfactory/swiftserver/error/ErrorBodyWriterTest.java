@@ -0,0 +1,57 @@
+package com.creativityfactory.swiftserver.error;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ErrorBodyWriterTest {
+    private static final long NOW = 1700000000123L;
+
+    // the body built by the director and serialized by Gson
+    private static String expected(int status, String message, String path) {
+        ErrorMessageBuilder builder = new ErrorMessageBuilderImpl();
+        new DirectorErrorResponseBuilder(builder).make(status, path, message);
+        ErrorResponse response = builder.make();
+        response.setTimestamp(new Date(NOW));
+
+        return new Gson().toJson(response);
+    }
+
+    private static String written(int status, String message, String path) throws Exception {
+        StringWriter out = new StringWriter();
+        ErrorBodyWriter.write(out, status, message, path, NOW);
+
+        return out.toString();
+    }
+
+    @Test
+    public void testFrameworkMessageMatchesGson() throws Exception {
+        assertEquals(expected(500, "try later", "/students/1"), written(500, "try later", "/students/1"));
+        assertEquals(expected(400, "Malformed json format", "/"), written(400, "Malformed json format", "/"));
+    }
+
+    @Test
+    public void testCustomMessageIsEscapedLikeGson() throws Exception {
+        String message = "the field \"name\" <b>'a' & b=c</b>\n\t\u0001   été";
+        String path = "/students/<script>";
+
+        assertEquals(expected(400, message, path), written(400, message, path));
+    }
+
+    @Test
+    public void testStatusWithoutErrorAndNullMessage() throws Exception {
+        assertEquals(expected(404, null, "/students/1"), written(404, null, "/students/1"));
+        assertEquals(expected(409, "conflict", "/students/1"), written(409, "conflict", "/students/1"));
+    }
+
+    @Test
+    public void testRegisteredMessage() throws Exception {
+        ErrorBodyWriter.register(409, "already exists");
+
+        assertEquals(expected(409, "already exists", "/students"), written(409, "already exists", "/students"));
+    }
+}
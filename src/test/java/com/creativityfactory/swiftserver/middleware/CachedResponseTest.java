@@ -0,0 +1,148 @@
+package com.creativityfactory.swiftserver.middleware;
+
+import com.creativityfactory.swiftserver.app.HttpRequestHandler;
+import com.creativityfactory.swiftserver.cache.ModelVersion;
+import com.creativityfactory.swiftserver.cache.ResponseCache;
+import com.creativityfactory.swiftserver.cache.VersionRegistry;
+import com.creativityfactory.swiftserver.client.models.Student;
+import com.creativityfactory.swiftserver.request.Request;
+import com.creativityfactory.swiftserver.request.RequestContext;
+import com.creativityfactory.swiftserver.response.HttpResponse;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachedResponseTest {
+    // a servlet response which keeps what is sent
+    private static final class Sent {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final Map<String, String> headers = new HashMap<>();
+        private int status = 200;
+        private int contentLength = -1;
+        // the number of bytes sent when the handler returned
+        private int sentByHandler = -1;
+
+        private HttpResponse response() {
+            ServletOutputStream stream = new ServletOutputStream() {
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {}
+
+                @Override
+                public void write(int b) {
+                    bytes.write(b);
+                }
+            };
+
+            HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(), new Class[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                if (method.getName().equals("getMethod")) return "GET";
+                if (method.getName().equals("getHeader")) return null;
+                throw new UnsupportedOperationException(method.getName());
+            });
+            HttpServletResponse response = (HttpServletResponse) Proxy.newProxyInstance(HttpServletResponse.class.getClassLoader(), new Class[]{HttpServletResponse.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getOutputStream": return stream;
+                    case "setContentLength": contentLength = (int) args[0]; return null;
+                    case "setStatus": status = (int) args[0]; return null;
+                    case "getStatus": return status;
+                    case "setHeader": headers.put((String) args[0], (String) args[1]); return null;
+                    case "getHeader": return headers.get((String) args[0]);
+                    case "containsHeader": return headers.containsKey((String) args[0]);
+                    case "setContentType": headers.put("Content-Type", (String) args[0]); return null;
+                    case "getContentType": return headers.get("Content-Type");
+                    case "setCharacterEncoding": return null;
+                    case "isCommitted": return false;
+                    default: throw new UnsupportedOperationException(method.getName());
+                }
+            });
+
+            return new HttpResponse(request, response);
+        }
+    }
+
+    private static Request request() {
+        RequestContext context = new RequestContext();
+        return (Request) Proxy.newProxyInstance(Request.class.getClassLoader(), new Class[]{Request.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "pattern": return "/students";
+                case "path": return "/students";
+                case "queryString": return null;
+                case "context": return context;
+                default: throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private static Sent get(CachedResponse cached) throws Exception {
+        Sent sent = new Sent();
+        HttpResponse response = sent.response();
+        cached.method(request(), response);
+        response.end();
+        return sent;
+    }
+
+    @Test
+    public void testSmallBodyIsCached() throws Exception {
+        ModelVersion version = new VersionRegistry().of(Student.class);
+        AtomicInteger calls = new AtomicInteger();
+        HttpRequestHandler handler = (req, res) -> {
+            calls.incrementAndGet();
+            res.json(Map.of("name", "a"));
+        };
+        CachedResponse cached = new CachedResponse(new ResponseCache(1 << 20), version, handler);
+
+        Sent first = get(cached);
+        Sent second = get(cached);
+
+        assertEquals(1, calls.get());
+        assertEquals("{\"name\":\"a\"}", first.bytes.toString(StandardCharsets.UTF_8));
+        assertEquals(first.bytes.toString(StandardCharsets.UTF_8), second.bytes.toString(StandardCharsets.UTF_8));
+        assertEquals(first.bytes.size(), second.contentLength);
+    }
+
+    @Test
+    public void testBodyLargerThanAnEntryIsStreamed() throws Exception {
+        ModelVersion version = new VersionRegistry().of(Student.class);
+        ResponseCache cache = new ResponseCache(16 * 1024);
+        // larger than the buffer of a response, which is larger than an entry
+        String text = "x".repeat(64 * 1024);
+        AtomicInteger calls = new AtomicInteger();
+        Sent[] current = {null};
+        HttpRequestHandler handler = (req, res) -> {
+            calls.incrementAndGet();
+            res.write(text);
+            current[0].sentByHandler = current[0].bytes.size();
+        };
+        CachedResponse cached = new CachedResponse(cache, version, handler);
+
+        for (int i = 0; i < 2; i++) {
+            Sent sent = new Sent();
+            current[0] = sent;
+            HttpResponse response = sent.response();
+            cached.method(request(), response);
+            response.end();
+
+            // the body has been sent while the handler was writing it, without a Content-Length
+            assertTrue(sent.sentByHandler > 0);
+            assertEquals(-1, sent.contentLength);
+            assertEquals(text, sent.bytes.toString(StandardCharsets.UTF_8));
+        }
+        assertEquals(2, calls.get());
+        assertEquals(0, cache.bytes());
+    }
+}
@@ -0,0 +1,169 @@
+package com.creativityfactory.swiftserver.middleware;
+
+import com.creativityfactory.swiftserver.cache.CacheableHandler;
+import com.creativityfactory.swiftserver.cache.ModelVersion;
+import com.creativityfactory.swiftserver.cache.VersionRegistry;
+import com.creativityfactory.swiftserver.client.models.Student;
+import com.creativityfactory.swiftserver.model.ModelDescriptor;
+import com.creativityfactory.swiftserver.request.Request;
+import com.creativityfactory.swiftserver.request.RequestContext;
+import com.creativityfactory.swiftserver.response.EncodedBody;
+import com.creativityfactory.swiftserver.response.HttpResponse;
+import com.creativityfactory.swiftserver.response.Response;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoalescingHandlerTest {
+    private static RequestContext context(Object id) {
+        return new RequestContext().setModel(ModelDescriptor.of(Student.class)).setId(id);
+    }
+
+    private static Request request(Object id) {
+        RequestContext context = context(id);
+        return (Request) Proxy.newProxyInstance(Request.class.getClassLoader(), new Class[]{Request.class}, (proxy, method, args) -> {
+            if (method.getName().equals("context")) return context;
+            if (method.getName().equals("queryString")) return null;
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private static String text(EncodedBody body) {
+        return new String(body.bytes(null, null), StandardCharsets.UTF_8);
+    }
+
+    // renders the id of the context, once both renders have started
+    private static final class BlockingHandler implements CacheableHandler {
+        private final CountDownLatch started;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger streamed = new AtomicInteger();
+        // whether the captured body is too large, it is then streamed
+        private final boolean tooLarge;
+
+        private BlockingHandler(int parties) {
+            this(parties, false);
+        }
+
+        private BlockingHandler(int parties, boolean tooLarge) {
+            this.started = new CountDownLatch(parties);
+            this.tooLarge = tooLarge;
+        }
+
+        @Override
+        public void method(Request req, Response res) {
+            streamed.incrementAndGet();
+        }
+
+        @Override
+        public EncodedBody capture(Request req, HttpResponse res, int maxBytes) throws Exception {
+            if (tooLarge) {
+                calls.incrementAndGet();
+                Thread.sleep(200);
+                method(req, res);
+                return null;
+            }
+
+            return render(req.context(), req.queryString());
+        }
+
+        @Override
+        public EncodedBody render(RequestContext context, String queryString) throws Exception {
+            calls.incrementAndGet();
+            started.countDown();
+            started.await(1, TimeUnit.SECONDS);
+            return EncodedBody.json("{\"id\":" + context.id() + "}");
+        }
+    }
+
+    @Test
+    public void testDifferentIdsAreNotCoalesced() throws Exception {
+        ModelVersion version = new VersionRegistry().of(Student.class);
+        BlockingHandler handler = new BlockingHandler(2);
+        CoalescingHandler coalescing = new CoalescingHandler(version, handler);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<EncodedBody> first = executor.submit(() -> coalescing.render(context(1), null));
+            Future<EncodedBody> second = executor.submit(() -> coalescing.render(context(2), null));
+
+            assertTrue(text(first.get(5, TimeUnit.SECONDS)).contains("1"));
+            assertTrue(text(second.get(5, TimeUnit.SECONDS)).contains("2"));
+            assertEquals(2, handler.calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSameIdAndQueryAreCoalesced() throws Exception {
+        ModelVersion version = new VersionRegistry().of(Student.class);
+        BlockingHandler handler = new BlockingHandler(2);
+        CoalescingHandler coalescing = new CoalescingHandler(version, handler);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<EncodedBody> first = executor.submit(() -> coalescing.render(context(1), "a=1&b=2"));
+            Thread.sleep(50);
+            Future<EncodedBody> second = executor.submit(() -> coalescing.render(context(1), "b=2&a=1"));
+
+            assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, handler.calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testMethodStreamsWithoutRendering() throws Exception {
+        BlockingHandler handler = new BlockingHandler(1);
+        new CoalescingHandler(new VersionRegistry().of(Student.class), handler).method(request(1), null);
+
+        assertEquals(1, handler.streamed.get());
+        assertEquals(0, handler.calls.get());
+    }
+
+    @Test
+    public void testCapturedBodyIsShared() throws Exception {
+        BlockingHandler handler = new BlockingHandler(2);
+        CoalescingHandler coalescing = new CoalescingHandler(new VersionRegistry().of(Student.class), handler);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<EncodedBody> first = executor.submit(() -> coalescing.capture(request(1), null, 1024));
+            Thread.sleep(50);
+            Future<EncodedBody> second = executor.submit(() -> coalescing.capture(request(1), null, 1024));
+
+            assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, handler.calls.get());
+            assertEquals(0, handler.streamed.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testStreamedBodyIsStreamedByEveryRequest() throws Exception {
+        BlockingHandler handler = new BlockingHandler(1, true);
+        CoalescingHandler coalescing = new CoalescingHandler(new VersionRegistry().of(Student.class), handler);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<EncodedBody> first = executor.submit(() -> coalescing.capture(request(1), null, 1024));
+            Thread.sleep(50);
+            Future<EncodedBody> second = executor.submit(() -> coalescing.capture(request(1), null, 1024));
+
+            assertNull(first.get(5, TimeUnit.SECONDS));
+            assertNull(second.get(5, TimeUnit.SECONDS));
+            // the body is captured once, then the waiting request streams its own
+            assertEquals(1, handler.calls.get());
+            assertEquals(2, handler.streamed.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.creativityfactory.swiftserver.middleware.rest;
+
+import com.creativityfactory.swiftserver.client.models.Student;
+import com.creativityfactory.swiftserver.model.ModelDescriptor;
+import com.creativityfactory.swiftserver.persistence.DefaultPersistence;
+import com.creativityfactory.swiftserver.persistence.Mutation;
+import com.creativityfactory.swiftserver.persistence.Persistence;
+import com.creativityfactory.swiftserver.persistence.StorageEngine;
+import com.creativityfactory.swiftserver.request.Request;
+import com.creativityfactory.swiftserver.request.RequestContext;
+import com.creativityfactory.swiftserver.response.Response;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpdateTest {
+    // a storage which fails every write once it is failing
+    private static class FailingEngine implements StorageEngine {
+        private final List<Object> stored = new ArrayList<>();
+        private boolean failing;
+
+        @Override
+        public List<Object> load(Class<?> model) {
+            return new ArrayList<>(stored);
+        }
+
+        @Override
+        public void write(Class<?> model, List<Mutation> mutations, boolean sync) throws IOException {
+            if (failing) throw new IOException("disk full");
+        }
+    }
+
+    private static Request request(RequestContext context) {
+        return (Request) Proxy.newProxyInstance(Request.class.getClassLoader(), new Class[]{Request.class}, (proxy, method, args) -> {
+            if (method.getName().equals("context")) return context;
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    // a response which only records the status of an error
+    private static Response response(int[] error) {
+        return (Response) Proxy.newProxyInstance(Response.class.getClassLoader(), new Class[]{Response.class}, (proxy, method, args) -> {
+            if (method.getName().equals("sendError")) return error[0] = (int) args[0];
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    @Test
+    public void testFailedPutDoesNotChangeTheEntity() {
+        FailingEngine engine = new FailingEngine();
+        engine.stored.add(new Student(1, "a"));
+        Persistence<Object> persistence = new DefaultPersistence(Student.class, engine);
+        Object entity = persistence.getById(1);
+
+        engine.failing = true;
+        RequestContext context = new RequestContext()
+                .setModel(ModelDescriptor.of(Student.class))
+                .setPersistence(persistence)
+                .setId(1)
+                .setBody(new Student(null, "a2"));
+        int[] error = {0};
+        assertFalse(new Update().handle(request(context), response(error)));
+
+        assertEquals(Response.REST_INTERNAL_SERVER_ERROR, error[0]);
+        assertSame(entity, persistence.getById(1));
+        assertEquals(new Student(1, "a"), persistence.getById(1));
+    }
+}
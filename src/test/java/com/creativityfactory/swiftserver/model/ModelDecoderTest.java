@@ -0,0 +1,53 @@
+package com.creativityfactory.swiftserver.model;
+
+import com.creativityfactory.swiftserver.client.dao.StudentDaoMemory;
+import com.creativityfactory.swiftserver.client.models.Note;
+import com.creativityfactory.swiftserver.client.models.Student;
+import com.creativityfactory.swiftserver.persistence.Persistence;
+import com.creativityfactory.swiftserver.persistence.SingletonDataSource;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelDecoderTest {
+    private final ModelDecoder decoder = new ModelDecoder(Note.class, new Gson());
+
+    @Test
+    public void testDecodeResolvesBelongToId() throws Exception {
+        Map<String, Class<? extends Persistence<?>>> dtSrcMap = new HashMap<>();
+        dtSrcMap.put("studentSrc", StudentDaoMemory.class);
+        SingletonDataSource.init(dtSrcMap);
+
+        Note note = (Note) decoder.decode(new StringReader("{\"id\": 3, \"mark\": 12.5, \"student\": 1, \"unknown\": [1, {}]}"));
+
+        assertEquals(Integer.valueOf(3), note.getId());
+        assertEquals(12.5f, note.getMark());
+        assertEquals(new Student(1, "john doe"), note.getStudent());
+    }
+
+    @Test
+    public void testDecodeNullFields() throws Exception {
+        Note note = (Note) decoder.decode(new StringReader("{\"id\": 3, \"mark\": null}"));
+
+        assertEquals(Integer.valueOf(3), note.getId());
+        assertNull(note.getMark());
+        assertNull(decoder.decode(new StringReader("null")));
+    }
+
+    @Test
+    public void testDecodeUnmatchedType() {
+        assertThrows(JsonSyntaxException.class, () -> decoder.decode(new StringReader("{\"id\": \"abc\"}")));
+    }
+
+    @Test
+    public void testDecodeMalformedJson() {
+        assertThrows(IOException.class, () -> decoder.decode(new StringReader("{\"id\": 3,")));
+    }
+}
@@ -1,10 +1,18 @@
 package com.creativityfactory.swiftserver.persistence;
 
 import com.creativityfactory.swiftserver.client.dao.StudentDaoMemory;
+import com.creativityfactory.swiftserver.client.models.Note;
 import com.creativityfactory.swiftserver.client.models.Student;
+import com.creativityfactory.swiftserver.utils.IdUtils;
+import com.google.gson.Gson;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -13,10 +21,27 @@ import static org.junit.jupiter.api.Assertions.*;
 class DefaultDataSourceTest {
     DefaultDataSource defaultDataSource = DefaultDataSource.getInstance();
 
+    @TempDir
+    File directory;
+
     DefaultDataSourceTest() throws IOException {
 
     }
 
+    private DefaultDataSource engine(long compactionThreshold) {
+        return new DefaultDataSource(new Gson(), directory, compactionThreshold);
+    }
+
+    private static void write(DefaultDataSource engine, Mutation mutation) throws IOException {
+        engine.write(Student.class, List.of(mutation), true);
+    }
+
+    private File[] segments() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".wal"));
+        Arrays.sort(files);
+        return files;
+    }
+
     @Test
     void test() throws Exception {
 
@@ -35,4 +60,133 @@ class DefaultDataSourceTest {
         assertEquals(student, object);
     }
 
-}
\ No newline at end of file
+    @Test
+    void testLogIsReplayedOnLoading() throws Exception {
+        DefaultDataSource engine = engine(1024 * 1024);
+        assertTrue(engine.load(Student.class).isEmpty());
+        write(engine, Mutation.insert(1, new Student(1, "a")));
+        write(engine, Mutation.insert(2, new Student(2, "b")));
+        write(engine, Mutation.insert(3, new Student(3, "c")));
+        write(engine, Mutation.update(1, new Student(1, "a2")));
+        write(engine, Mutation.delete(2));
+
+        assertEquals(List.of(new Student(1, "a2"), new Student(3, "c")), engine(1024 * 1024).load(Student.class));
+    }
+
+    @Test
+    void testTornRecordIsDropped() throws Exception {
+        DefaultDataSource engine = engine(1024 * 1024);
+        engine.load(Student.class);
+        write(engine, Mutation.insert(1, new Student(1, "a")));
+        write(engine, Mutation.insert(2, new Student(2, "b")));
+
+        // a crash in the middle of the last record
+        File segment = segments()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        DefaultDataSource recovered = engine(1024 * 1024);
+        assertEquals(List.of(new Student(1, "a")), recovered.load(Student.class));
+        write(recovered, Mutation.insert(3, new Student(3, "c")));
+        assertEquals(List.of(new Student(1, "a"), new Student(3, "c")), engine(1024 * 1024).load(Student.class));
+    }
+
+    @Test
+    void testCorruptedRecordIsDropped() throws Exception {
+        DefaultDataSource engine = engine(1024 * 1024);
+        engine.load(Student.class);
+        write(engine, Mutation.insert(1, new Student(1, "a")));
+        write(engine, Mutation.insert(2, new Student(2, "b")));
+
+        File segment = segments()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(file.length() - 2);
+            file.write('x');
+        }
+
+        assertEquals(List.of(new Student(1, "a")), engine(1024 * 1024).load(Student.class));
+    }
+
+    @Test
+    void testCompactionWritesSnapshotAndDeletesCoveredLog() throws Exception {
+        DefaultDataSource engine = engine(1);
+        engine.load(Student.class);
+        write(engine, Mutation.insert(1, new Student(1, "a")));
+        write(engine, Mutation.insert(2, new Student(2, "b")));
+
+        StorageEngine.Checkpoint checkpoint = engine.checkpoint(Student.class);
+        assertNotNull(checkpoint);
+        // a write during the compaction goes to the next segment
+        write(engine, Mutation.insert(3, new Student(3, "c")));
+        checkpoint.write(List.of(new Student(1, "a"), new Student(2, "b")));
+
+        assertEquals(1, segments().length);
+        assertTrue(new File(directory, Student.class.getName() + ".bin").exists());
+        assertEquals(List.of(new Student(1, "a"), new Student(2, "b"), new Student(3, "c")), engine(1).load(Student.class));
+    }
+
+    @Test
+    void testNoCompactionBelowThreshold() throws Exception {
+        DefaultDataSource engine = engine(1024 * 1024);
+        engine.load(Student.class);
+        write(engine, Mutation.insert(1, new Student(1, "a")));
+
+        assertNull(engine.checkpoint(Student.class));
+    }
+
+    @Test
+    void testSnapshotIsBinary() throws Exception {
+        DefaultDataSource engine = engine(1024 * 1024);
+        List<Object> students = List.of(new Student(1, "a \"quoted\" name"), new Student(2, "b"));
+        assertTrue(engine.saveDB(students, Student.class));
+
+        byte[] snapshot = Files.readAllBytes(new File(directory, Student.class.getName() + ".bin").toPath());
+        assertEquals("SWSB", new String(snapshot, 0, 4, StandardCharsets.US_ASCII));
+        assertEquals(students, engine(1024 * 1024).loadDB(Student.class));
+        assertEquals(students, engine(1024 * 1024).load(Student.class));
+    }
+
+    @Test
+    void testJsonFileIsConverted() throws Exception {
+        Gson gson = new Gson();
+        List<String> db = new ArrayList<>();
+        for (Student student: List.of(new Student(1, "a"), new Student(2, "b"))) {
+            db.add(gson.toJson(IdUtils.mapIdToObject(student, Student.class)));
+        }
+        Files.writeString(new File(directory, Student.class.getName() + ".json").toPath(), gson.toJson(db));
+
+        DefaultDataSource engine = engine(1024 * 1024);
+        assertEquals(List.of(new Student(1, "a"), new Student(2, "b")), engine.load(Student.class));
+        assertTrue(new File(directory, Student.class.getName() + ".bin").exists());
+
+        write(engine, Mutation.insert(3, new Student(3, "c")));
+        assertEquals(List.of(new Student(1, "a"), new Student(2, "b"), new Student(3, "c")), engine(1024 * 1024).load(Student.class));
+    }
+
+    @Test
+    void testSnapshotLoadsBelongToAsStubs() throws Exception {
+        Map<String, Class<? extends Persistence<?>>> dtSrcMap = new HashMap<>();
+        dtSrcMap.put("studentSrc", StudentDaoMemory.class);
+        SingletonDataSource.init(dtSrcMap);
+
+        DefaultDataSource engine = engine(1024 * 1024);
+        assertTrue(engine.saveDB(List.of(new Note(1, 12.5f, true, new Student(2, "maria Kartner")), new Note(2, null, false)), Note.class));
+
+        // the loading does not read the referenced model
+        List<Object> notes = engine(1024 * 1024).loadDB(Note.class);
+        assertEquals(2, notes.size());
+        Note first = (Note) notes.get(0);
+        assertEquals(1, first.getId());
+        assertEquals(12.5f, first.getMark());
+        assertEquals(2, first.getStudent().getId());
+        assertNull(first.getStudent().getName());
+        Note second = (Note) notes.get(1);
+        assertNull(second.getMark());
+        assertNull(second.getStudent());
+
+        // the reference is resolved when the entity is read
+        Note read = (Note) new DefaultPersistence(Note.class, engine(1024 * 1024)).getById(1);
+        assertEquals(new Student(2, "maria Kartner"), read.getStudent());
+    }
+}
@@ -0,0 +1,186 @@
+package com.creativityfactory.swiftserver.persistence;
+
+import com.creativityfactory.swiftserver.annotation.BelongTo;
+import com.creativityfactory.swiftserver.annotation.FromDataSource;
+import com.creativityfactory.swiftserver.client.models.Student;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DefaultPersistenceTest {
+    // a storage keeping the stored entities in a list, which counts its loads and can fail
+    private static class MemoryEngine implements StorageEngine {
+        private final List<Object> stored = new ArrayList<>();
+        private int loads;
+        private int batches;
+        private boolean failing;
+
+        @Override
+        public List<Object> load(Class<?> model) {
+            loads++;
+            return new ArrayList<>(stored);
+        }
+
+        @Override
+        public synchronized void write(Class<?> model, List<Mutation> mutations, boolean sync) throws IOException {
+            if (failing) throw new IOException("disk full");
+            batches++;
+            for (Mutation mutation: mutations) {
+                if (mutation.type() != Mutation.Type.INSERT) stored.removeIf(current -> ((Student) current).getId().equals(mutation.id()));
+                if (mutation.type() != Mutation.Type.DELETE) stored.add(mutation.entity());
+            }
+        }
+    }
+
+    @Test
+    public void testStorageIsLoadedOnce() {
+        MemoryEngine engine = new MemoryEngine();
+        engine.stored.add(new Student(1, "john doe"));
+        engine.stored.add(new Student(2, "jane doe"));
+        Persistence<Object> persistence = new DefaultPersistence(Student.class, engine);
+
+        assertEquals(new Student(2, "jane doe"), persistence.getById(2));
+        assertEquals(2, persistence.getAll().size());
+        assertEquals(List.of(new Student(1, "john doe")), persistence.getLimit(1));
+        assertNull(persistence.getById(3));
+        assertEquals(1, engine.loads);
+    }
+
+    @Test
+    public void testWritesKeepInsertionOrder() {
+        MemoryEngine engine = new MemoryEngine();
+        Persistence<Object> persistence = new DefaultPersistence(Student.class, engine);
+
+        assertNotNull(persistence.save(new Student(1, "a")));
+        assertNotNull(persistence.save(new Student(2, "b")));
+        assertNotNull(persistence.save(new Student(3, "c")));
+        assertNull(persistence.save(new Student(2, "duplicate")));
+        assertNotNull(persistence.update(new Student(1, "a2")));
+        assertNotNull(persistence.delete(new Student(2, "b")));
+        assertNull(persistence.update(new Student(4, "missing")));
+
+        assertEquals(List.of(new Student(1, "a2"), new Student(3, "c")), persistence.getAll());
+    }
+
+    @Test
+    public void testFailedWriteIsNotPublished() {
+        MemoryEngine engine = new MemoryEngine();
+        Persistence<Object> persistence = new DefaultPersistence(Student.class, engine);
+        persistence.save(new Student(1, "a"));
+
+        engine.failing = true;
+        assertNull(persistence.save(new Student(2, "b")));
+        assertNull(persistence.update(new Student(1, "a2")));
+        assertNull(persistence.delete(new Student(1, "a")));
+
+        assertEquals(List.of(new Student(1, "a")), persistence.getAll());
+        assertNull(persistence.getById(2));
+    }
+
+    @Test
+    public void testConcurrentWritesAreStoredInBatches() throws Exception {
+        MemoryEngine engine = new MemoryEngine();
+        Persistence<Object> persistence = new DefaultPersistence(Student.class, engine, new WriteOptions(64, 200_000, true));
+        persistence.getAll();
+
+        int writers = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                // every id is written twice, only the first insert is saved
+                int id = i / 2;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return persistence.save(new Student(id, "student " + id));
+                }));
+            }
+            start.countDown();
+
+            int saved = 0;
+            for (Future<Object> result: results) if (result.get(5, TimeUnit.SECONDS) != null) saved++;
+
+            assertEquals(writers / 2, saved);
+            assertEquals(writers / 2, persistence.getAll().size());
+            assertTrue(engine.batches < saved, "the writes have not been batched: " + engine.batches);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // two models of the default data source referencing each other
+    @FromDataSource
+    static class Owner {
+        private Integer id;
+        private String name;
+        @BelongTo
+        private Pet pet;
+
+        Owner() {}
+
+        Owner(Integer id, String name, Pet pet) {
+            this.id = id;
+            this.name = name;
+            this.pet = pet;
+        }
+    }
+
+    @FromDataSource
+    static class Pet {
+        private Integer id;
+        @BelongTo
+        private Owner owner;
+
+        Pet() {}
+
+        Pet(Integer id, Owner owner) {
+            this.id = id;
+            this.owner = owner;
+        }
+    }
+
+    @Test
+    public void testReferencesAreResolvedOnRead() throws Exception {
+        // the references are loaded as stubs holding only the id
+        Map<Class<?>, List<Object>> stored = new HashMap<>();
+        stored.put(Owner.class, List.of(new Owner(1, "a", new Pet(1, null))));
+        stored.put(Pet.class, List.of(new Pet(1, new Owner(1, null, null))));
+        SingletonDataSource.configure(new StorageEngine() {
+            @Override
+            public List<Object> load(Class<?> model) {
+                return new ArrayList<>(stored.getOrDefault(model, List.of()));
+            }
+
+            @Override
+            public void write(Class<?> model, List<Mutation> mutations, boolean sync) {}
+        }, WriteOptions.DEFAULT);
+        try {
+            Persistence<Object> owners = SingletonDataSource.getInstance(Owner.class);
+            Persistence<Object> pets = SingletonDataSource.getInstance(Pet.class);
+
+            Pet pet = (Pet) pets.getById(1);
+            assertEquals("a", pet.owner.name);
+            // the referenced entity is given as it is stored
+            assertNull(pet.owner.pet.owner);
+
+            assertNotNull(owners.update(new Owner(1, "b", new Pet(1, null))));
+            assertEquals("b", ((Pet) pets.getById(1)).owner.name);
+            // an entity read before is not modified
+            assertEquals("a", pet.owner.name);
+
+            assertNotNull(owners.delete(new Owner(1, "b", null)));
+            assertNull(((Pet) pets.getById(1)).owner);
+            assertEquals(1, ((Pet) pets.getAll().get(0)).id);
+        } finally {
+            SingletonDataSource.configure(null, WriteOptions.DEFAULT);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.creativityfactory.swiftserver.persistence;
+
+import com.creativityfactory.swiftserver.client.models.Student;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedDataSourceTest {
+    @TempDir
+    File directory;
+
+    private MappedDataSource engine() {
+        return new MappedDataSource(new Gson(), directory);
+    }
+
+    private File records() {
+        return new File(directory, Student.class.getName() + ".records");
+    }
+
+    private static List<Object> decode(List<Object> loaded) throws IOException {
+        List<Object> entities = new ArrayList<>();
+        for (Object record: loaded) entities.add(((StoredRecord) record).decode());
+        return entities;
+    }
+
+    @Test
+    void testRecordsAreIndexedWithoutDecoding() throws Exception {
+        MappedDataSource engine = engine();
+        assertTrue(engine.load(Student.class).isEmpty());
+        engine.write(Student.class, List.of(
+                Mutation.insert(1, new Student(1, "a")),
+                Mutation.insert(2, new Student(2, "b")),
+                Mutation.insert(3, new Student(3, "c"))), true);
+        engine.write(Student.class, List.of(Mutation.update(1, new Student(1, "a2")), Mutation.delete(2)), true);
+
+        List<Object> loaded = engine().load(Student.class);
+        assertEquals(2, loaded.size());
+        assertTrue(loaded.get(0) instanceof StoredRecord);
+        assertEquals(1, ((StoredRecord) loaded.get(0)).id());
+        assertEquals(3, ((StoredRecord) loaded.get(1)).id());
+        assertEquals(List.of(new Student(1, "a2"), new Student(3, "c")), decode(loaded));
+    }
+
+    @Test
+    void testRecordsNeverCrossAPage() throws Exception {
+        MappedDataSource engine = engine();
+        engine.load(Student.class);
+        String name = "x".repeat(RecordFile.PAGE_SIZE / 3);
+        List<Object> expected = new ArrayList<>();
+        for (int i = 1; i <= 7; i++) {
+            Student student = new Student(i, name + i);
+            engine.write(Student.class, List.of(Mutation.insert(i, student)), false);
+            expected.add(student);
+        }
+
+        // two records per page, the rest of each page is padding
+        assertTrue(records().length() > 3L * RecordFile.PAGE_SIZE);
+        assertEquals(expected, decode(engine().load(Student.class)));
+    }
+
+    @Test
+    void testTornRecordIsTruncated() throws Exception {
+        MappedDataSource engine = engine();
+        engine.load(Student.class);
+        engine.write(Student.class, List.of(Mutation.insert(1, new Student(1, "a"))), true);
+        long valid = records().length();
+        engine.write(Student.class, List.of(Mutation.insert(2, new Student(2, "b"))), true);
+
+        // a crash in the middle of the last record
+        try (RandomAccessFile file = new RandomAccessFile(records(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        assertEquals(List.of(new Student(1, "a")), decode(engine().load(Student.class)));
+        assertEquals(valid, records().length());
+    }
+
+    @Test
+    void testReplacedRecordsAreCompactedOnLoading() throws Exception {
+        MappedDataSource engine = engine();
+        engine.load(Student.class);
+        String name = "y".repeat(64 * 1024);
+        for (int i = 0; i < 40; i++) {
+            engine.write(Student.class, List.of(Mutation.insert(i, new Student(i, name))), false);
+            engine.write(Student.class, List.of(Mutation.delete(i)), false);
+        }
+        engine.write(Student.class, List.of(Mutation.insert(100, new Student(100, "kept"))), true);
+        long before = records().length();
+
+        assertEquals(List.of(new Student(100, "kept")), decode(engine().load(Student.class)));
+        assertTrue(records().length() < before);
+        assertEquals(List.of(new Student(100, "kept")), decode(engine().load(Student.class)));
+    }
+
+    @Test
+    void testPersistenceReadsFromTheMapping() throws Exception {
+        DefaultPersistence persistence = new DefaultPersistence(Student.class, engine());
+        assertNotNull(persistence.save(new Student(1, "a")));
+        assertNotNull(persistence.save(new Student(2, "b")));
+
+        DefaultPersistence reopened = new DefaultPersistence(Student.class, engine());
+        assertEquals(new Student(2, "b"), reopened.getById(2));
+        assertNotNull(reopened.update(new Student(1, "a2")));
+        assertEquals(new Student(2, "b"), reopened.delete(new Student(2, "b")));
+        assertEquals(List.of(new Student(1, "a2")), reopened.getAll());
+
+        assertEquals(List.of(new Student(1, "a2")), new DefaultPersistence(Student.class, engine()).getAll());
+    }
+}
@@ -0,0 +1,84 @@
+package com.creativityfactory.swiftserver.response;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressionTest {
+    private final Compression compression = new Compression(true, 16, Compression.DEFAULT_TYPES, Deflater.DEFAULT_COMPRESSION);
+    private final byte[] json = "{\"name\":\"john doe\",\"age\":30},".repeat(500).getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testNegotiate() {
+        assertEquals(Compression.GZIP, compression.negotiate("gzip, deflate, br"));
+        assertEquals(Compression.DEFLATE, compression.negotiate("gzip;q=0.5, deflate"));
+        assertEquals(Compression.DEFLATE, compression.negotiate("gzip;q=0, *"));
+        assertNull(compression.negotiate("identity"));
+        assertNull(compression.negotiate(null));
+        assertNull(Compression.NONE.negotiate("gzip"));
+    }
+
+    @Test
+    public void testIsCompressible() {
+        assertTrue(compression.isCompressible("application/json;charset=UTF-8"));
+        assertFalse(compression.isCompressible("image/png"));
+        assertFalse(compression.isCompressible(null));
+    }
+
+    @Test
+    public void testGzipRoundTrip() throws Exception {
+        byte[] compressed = compression.compress(json, 0, json.length, Compression.GZIP);
+
+        assertTrue(compressed.length < json.length);
+        assertArrayEquals(json, new GZIPInputStream(new ByteArrayInputStream(compressed)).readAllBytes());
+    }
+
+    @Test
+    public void testDeflateRoundTrip() throws Exception {
+        byte[] compressed = compression.compress(json, 0, json.length, Compression.DEFLATE);
+
+        assertArrayEquals(json, new InflaterInputStream(new ByteArrayInputStream(compressed)).readAllBytes());
+    }
+
+    @Test
+    public void testCompressingStream() throws Exception {
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        OutputStream stream = compression.compressingStream(sent, Compression.GZIP);
+        for (int i = 0; i < json.length; i += 1000) stream.write(json, i, Math.min(1000, json.length - i));
+        stream.close();
+
+        InputStream in = new GZIPInputStream(new ByteArrayInputStream(sent.toByteArray()));
+        assertArrayEquals(json, in.readAllBytes());
+    }
+
+    @Test
+    public void testAbortedStreamIsNotFinished() throws Exception {
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        OutputStream stream = compression.compressingStream(sent, Compression.GZIP);
+        stream.write(json, 0, 1000);
+        int written = sent.size();
+
+        compression.abort(stream);
+        // the deflater has been given back, closing the stream writes nothing
+        stream.close();
+        assertEquals(written, sent.size());
+    }
+
+    @Test
+    public void testEncodedBodyKeepsCompressedVariant() {
+        EncodedBody body = new EncodedBody(json, "application/json");
+
+        byte[] gzip = body.bytes(Compression.GZIP, compression);
+        assertSame(gzip, body.bytes(Compression.GZIP, compression));
+        assertSame(json, body.bytes(null, compression));
+    }
+}
@@ -0,0 +1,104 @@
+package com.creativityfactory.swiftserver.response;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Utf8OutputTest {
+    private final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+    private final int[] contentLength = {-1};
+
+    // a response which only supports the output stream and the content length
+    private HttpServletResponse response() {
+        ServletOutputStream stream = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {}
+
+            @Override
+            public void write(int b) {
+                sent.write(b);
+            }
+        };
+
+        return (HttpServletResponse) Proxy.newProxyInstance(HttpServletResponse.class.getClassLoader(), new Class[]{HttpServletResponse.class}, (proxy, method, args) -> {
+            if (method.getName().equals("getOutputStream")) return stream;
+            if (method.getName().equals("setContentLength")) return contentLength[0] = (int) args[0];
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    @Test
+    public void testSmallBodyIsSentWithContentLength() throws Exception {
+        String text = "{\"name\":\"Zoé\",\"city\":\"東京\",\"mood\":\"😀\"}";
+        Utf8Output output = new Utf8Output(response());
+        output.write(text);
+        assertEquals(0, sent.size());
+
+        output.close();
+        byte[] expected = text.getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(expected, sent.toByteArray());
+        assertEquals(expected.length, contentLength[0]);
+    }
+
+    @Test
+    public void testLargeBodyIsStreamed() throws Exception {
+        String text = "é😀a".repeat(Utf8Output.BUFFER_SIZE);
+        Utf8Output output = new Utf8Output(response());
+        for (char c: text.toCharArray()) output.write(c);
+        output.close();
+
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), sent.toByteArray());
+        assertEquals(-1, contentLength[0]);
+    }
+
+    @Test
+    public void testLoneSurrogateIsReplaced() throws Exception {
+        Utf8Output output = new Utf8Output(response());
+        output.write("a\uD83Db\uDE00");
+        output.close();
+
+        assertEquals("a?b?", sent.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testAbortDiscardsUnsentBody() throws Exception {
+        Utf8Output output = new Utf8Output(response());
+        output.write("{\"partial\":");
+        output.abort();
+        output.close();
+
+        assertEquals(0, sent.size());
+        assertEquals(-1, contentLength[0]);
+    }
+
+    @Test
+    public void testDiscardOnlyDropsUnsentBody() throws Exception {
+        Utf8Output output = new Utf8Output(response());
+        output.write("[{\"id\":1},");
+        output.discard();
+        output.write("{}");
+        output.close();
+        assertEquals("{}", sent.toString(StandardCharsets.UTF_8));
+
+        sent.reset();
+        String text = "a".repeat(Utf8Output.BUFFER_SIZE + 10);
+        Utf8Output streamed = new Utf8Output(response());
+        streamed.write(text);
+        assertTrue(streamed.isStreaming());
+        streamed.discard();
+        streamed.close();
+        assertEquals(text, sent.toString(StandardCharsets.UTF_8));
+    }
+}
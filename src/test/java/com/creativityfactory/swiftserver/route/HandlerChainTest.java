@@ -0,0 +1,84 @@
+package com.creativityfactory.swiftserver.route;
+
+import com.creativityfactory.swiftserver.app.ChainedHandler;
+import com.creativityfactory.swiftserver.app.HttpRequestHandler;
+import com.creativityfactory.swiftserver.request.Request;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HandlerChainTest {
+    // a request which only supports the flow control methods
+    private static Request request() {
+        boolean[] isContinue = {false};
+        return (Request) Proxy.newProxyInstance(Request.class.getClassLoader(), new Class[]{Request.class}, (proxy, method, args) -> {
+            if (method.getName().equals("next")) return isContinue[0] = (boolean) args[0];
+            if (method.getName().equals("shouldContinue")) return isContinue[0];
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    @Test
+    public void testHandlersAreCalledInOrder() throws Exception {
+        List<Integer> calls = new ArrayList<>();
+        HttpRequestHandler chain = HandlerChain.compose(List.of(
+                (req, res) -> { calls.add(1); req.next(true); },
+                (req, res) -> { calls.add(2); req.next(true); },
+                (req, res) -> calls.add(3)
+        ));
+
+        chain.method(request(), null);
+        assertEquals(List.of(1, 2, 3), calls);
+    }
+
+    @Test
+    public void testChainStopsWhenNextIsNotCalled() throws Exception {
+        List<Integer> calls = new ArrayList<>();
+        HttpRequestHandler chain = HandlerChain.compose(List.of(
+                (req, res) -> { calls.add(1); req.next(true); },
+                (req, res) -> calls.add(2),
+                (req, res) -> calls.add(3)
+        ));
+
+        chain.method(request(), null);
+        assertEquals(List.of(1, 2), calls);
+    }
+
+    @Test
+    public void testFlagIsResetBeforeEveryHandler() throws Exception {
+        List<Boolean> flags = new ArrayList<>();
+        HttpRequestHandler chain = HandlerChain.compose(List.of(
+                (req, res) -> req.next(true),
+                (req, res) -> flags.add(req.shouldContinue())
+        ));
+
+        chain.method(request(), null);
+        assertEquals(List.of(false), flags);
+    }
+
+    @Test
+    public void testChainedHandlersStopByTheirResult() throws Exception {
+        List<Integer> calls = new ArrayList<>();
+        HttpRequestHandler chain = HandlerChain.compose(List.of(
+                (ChainedHandler) (req, res) -> calls.add(1),
+                (ChainedHandler) (req, res) -> !calls.add(2),
+                (req, res) -> calls.add(3)
+        ));
+
+        // the request fails on any call, the flag is never used
+        Request request = (Request) Proxy.newProxyInstance(Request.class.getClassLoader(), new Class[]{Request.class}, (proxy, method, args) -> {
+            throw new UnsupportedOperationException(method.getName());
+        });
+        chain.method(request, null);
+        assertEquals(List.of(1, 2), calls);
+    }
+
+    @Test
+    public void testCannotComposeEmptyChain() {
+        assertThrows(IllegalArgumentException.class, () -> HandlerChain.compose(List.of()));
+    }
+}
@@ -0,0 +1,65 @@
+package com.creativityfactory.swiftserver.route;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteCacheTest {
+    @Test
+    public void testResolveCountsHitsAndMisses() {
+        RouteTable table = new RouteTable();
+        table.add(HttpMethod.GET, "/users/:id");
+        table.setCacheSize(16);
+        table.freeze();
+
+        RouteMatch first = table.resolve(HttpMethod.GET, "/users/1", 0);
+        RouteMatch second = table.resolve(HttpMethod.GET, "/users/1", 0);
+
+        assertSame(first, second);
+        assertEquals("1", second.params().get("id"));
+        assertEquals(1, table.cache().hits());
+        assertEquals(1, table.cache().misses());
+    }
+
+    @Test
+    public void testUnknownPathsAreNotCached() {
+        RouteTable table = new RouteTable();
+        table.add(HttpMethod.GET, "/users/:id");
+        table.setCacheSize(16);
+        table.freeze();
+
+        assertNull(table.resolve(HttpMethod.GET, "/books/1", 0));
+        assertEquals(0, table.cache().size());
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+        RouteCache cache = new RouteCache(32);
+        RouteMatch match = new RouteMatch(new Route("/users/:id"), RouteParams.EMPTY);
+        for (int i = 0; i < 1000; i++) cache.put(HttpMethod.GET, "/users/" + i, 0, match);
+
+        assertTrue(cache.size() <= 32);
+    }
+
+    @Test
+    public void testCacheIsClearedWhenRoutesChange() {
+        RouteTable table = new RouteTable();
+        table.setCacheSize(16);
+        table.add(HttpMethod.GET, "/users/:id");
+        table.resolve(HttpMethod.GET, "/users/new", 0);
+        assertEquals(1, table.cache().size());
+
+        table.add(HttpMethod.GET, "/users/new");
+        assertEquals(0, table.cache().size());
+        assertEquals("/users/new", table.resolve(HttpMethod.GET, "/users/new", 0).pattern());
+    }
+
+    @Test
+    public void testZeroSizeDisablesCache() {
+        RouteCache cache = new RouteCache(0);
+        cache.put(HttpMethod.GET, "/users/1", 0, new RouteMatch(new Route("/users/:id"), RouteParams.EMPTY));
+
+        assertNull(cache.get(HttpMethod.GET, "/users/1", 0));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,76 @@
+package com.creativityfactory.swiftserver.route;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteTableTest {
+    private static RouteMatch match(RouteTable table, HttpMethod method, String path) {
+        return table.match(method, path, 0, path.length());
+    }
+
+    @Test
+    public void testHeadIsResolvedWithGetRoutes() {
+        RouteTable table = new RouteTable();
+        table.add(HttpMethod.GET, "/users/:id");
+        table.freeze();
+
+        RouteMatch match = match(table, HttpMethod.HEAD, "/users/1");
+        assertNotNull(match);
+        assertEquals("/users/:id", match.pattern());
+    }
+
+    @Test
+    public void testAllowIsComputedWhenFrozen() {
+        RouteTable table = new RouteTable();
+        table.add(HttpMethod.GET, "/users/");
+        table.add(HttpMethod.POST, "/users/");
+        table.add(HttpMethod.GET, "/users/:id");
+        table.add(HttpMethod.DELETE, "/users/:userId");
+        table.freeze();
+
+        assertEquals("GET, HEAD, POST, OPTIONS", table.allow("/users", 0, "/users".length()));
+        assertEquals("GET, HEAD, DELETE, OPTIONS", table.allow("/users/1", 0, "/users/1".length()));
+        assertNull(table.allow("/books", 0, "/books".length()));
+        assertNull(match(table, HttpMethod.PUT, "/users/1"));
+    }
+
+    @Test
+    public void testCannotAddRouteWhenFrozen() {
+        RouteTable table = new RouteTable();
+        table.freeze();
+
+        assertThrows(IllegalStateException.class, () -> table.add(HttpMethod.GET, "/users"));
+    }
+
+    @Test
+    public void testCannotAddHeadOrOptionsRoute() {
+        RouteTable table = new RouteTable();
+
+        assertThrows(IllegalArgumentException.class, () -> table.add(HttpMethod.HEAD, "/users"));
+        assertThrows(IllegalArgumentException.class, () -> table.add(HttpMethod.OPTIONS, "/users"));
+    }
+
+    @Test
+    public void testAllowWithTypedParams() {
+        RouteTable table = new RouteTable();
+        table.add(HttpMethod.GET, "/users/:id<int>");
+        table.add(HttpMethod.PUT, "/users/:id<int>");
+        table.freeze();
+
+        assertEquals("GET, HEAD, PUT, OPTIONS", table.allow("/users/1", 0, "/users/1".length()));
+        assertNull(table.allow("/users/abc", 0, "/users/abc".length()));
+    }
+
+    @Test
+    public void testAllowOfAPathMatchedByDifferentPatterns() {
+        RouteTable table = new RouteTable();
+        table.add(HttpMethod.GET, "/users/:id");
+        table.add(HttpMethod.POST, "/users/new");
+        table.freeze();
+
+        assertEquals("GET, HEAD, POST, OPTIONS", table.allow("/users/new", 0, "/users/new".length()));
+        assertEquals("GET, HEAD, OPTIONS", table.allow("/users/1", 0, "/users/1".length()));
+        assertNull(match(table, HttpMethod.PUT, "/users/new"));
+    }
+}
@@ -0,0 +1,148 @@
+package com.creativityfactory.swiftserver.route;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouterTest {
+    @Test
+    public void testMatchStaticPattern() {
+        Router router = new Router();
+        router.add("/users");
+
+        RouteMatch match = router.match("/users");
+        assertNotNull(match);
+        assertEquals("/users", match.pattern());
+        assertTrue(match.params().isEmpty());
+    }
+
+    @Test
+    public void testMatchIgnoresTrailingAndConsecutiveSlashes() {
+        Router router = new Router();
+        router.add("/users/");
+
+        assertNotNull(router.match("/users"));
+        assertNotNull(router.match("//users//"));
+    }
+
+    @Test
+    public void testMatchPatternWithPlaceholders() {
+        Router router = new Router();
+        router.add("/users/:userId/posts/:postId");
+
+        RouteMatch match = router.match("/users/123/posts/456");
+        Map<String, String> expectedParams = new HashMap<>();
+        expectedParams.put("userId", "123");
+        expectedParams.put("postId", "456");
+
+        assertNotNull(match);
+        assertEquals(expectedParams, match.params());
+    }
+
+    @Test
+    public void testNoMatch() {
+        Router router = new Router();
+        router.add("/users/:userId/posts");
+
+        assertNull(router.match("/users/123"));
+        assertNull(router.match("/users/123/comments"));
+        assertNull(router.match("/"));
+    }
+
+    @Test
+    public void testStaticSegmentHasPrecedenceOverPlaceholder() {
+        Router router = new Router();
+        router.add("/users/:id");
+        router.add("/users/new");
+
+        assertEquals("/users/new", router.match("/users/new").pattern());
+        assertEquals("/users/:id", router.match("/users/1").pattern());
+    }
+
+    @Test
+    public void testBacktrackToPlaceholderWhenStaticBranchFails() {
+        Router router = new Router();
+        router.add("/users/new");
+        router.add("/users/:id/posts");
+
+        RouteMatch match = router.match("/users/new/posts");
+        assertNotNull(match);
+        assertEquals("/users/:id/posts", match.pattern());
+        assertEquals("new", match.params().get("id"));
+    }
+
+    @Test
+    public void testSamePatternReturnsSameRoute() {
+        Router router = new Router();
+        assertSame(router.add("/users/:id"), router.add("/users/:id"));
+        assertEquals(1, router.routes().size());
+    }
+
+    @Test
+    public void testMatchRegionOfUri() {
+        Router router = new Router();
+        router.add("/users/:id");
+
+        String uri = "/context/app/users/42";
+        RouteMatch match = router.match(uri, "/context/app".length(), uri.length());
+        assertNotNull(match);
+        assertEquals("42", match.params().get("id"));
+    }
+
+    @Test
+    public void testParamsWithDuplicatePlaceholder() {
+        Router router = new Router();
+        router.add("/users/:userId/posts/:userId");
+
+        RouteParams params = router.match("/users/123/posts/456").params();
+        assertEquals("456", params.get("userId"));
+        assertEquals(1, params.size());
+        assertNull(params.get("postId"));
+    }
+
+    @Test
+    public void testTypedParamIsConvertedWhileMatching() {
+        Router router = new Router();
+        router.add("/users/:id<int>");
+        router.add("/orders/:id<long>");
+        router.add("/tokens/:id<uuid>");
+
+        assertEquals(42, router.match("/users/42").params().getValue("id"));
+        assertEquals("42", router.match("/users/42").params().get("id"));
+        assertEquals(9000000000L, router.match("/orders/9000000000").params().getValue("id"));
+        UUID uuid = UUID.randomUUID();
+        assertEquals(uuid, router.match("/tokens/" + uuid).params().getValue("id"));
+    }
+
+    @Test
+    public void testTypedParamRejectsMalformedSegment() {
+        Router router = new Router();
+        router.add("/users/:id<int>");
+        router.add("/tokens/:id<uuid>");
+
+        assertNull(router.match("/users/abc"));
+        assertNull(router.match("/users/99999999999"));
+        assertNull(router.match("/tokens/not-a-uuid"));
+    }
+
+    @Test
+    public void testTypedParamIsTriedBeforeUntypedParam() {
+        Router router = new Router();
+        router.add("/users/:name");
+        router.add("/users/:id<int>");
+
+        assertEquals("/users/:id<int>", router.match("/users/1").pattern());
+        assertEquals("/users/:name", router.match("/users/john").pattern());
+        assertEquals("john", router.match("/users/john").params().getValue("name"));
+    }
+
+    @Test
+    public void testUnknownParamTypeIsRejected() {
+        Router router = new Router();
+        assertThrows(IllegalArgumentException.class, () -> router.add("/users/:id<date>"));
+    }
+}
@@ -113,4 +113,16 @@ class FieldUtilsTest {
         assertTrue(result instanceof Employee);
         assertEquals(oldEmployee.name, ((Employee) result).name);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testMergeFieldsDoesNotModifyOldObject() {
+        newMan.id = 2;
+        newMan.birthDate = null;
+        Object result = FieldUtils.mergeFields(oldMan, newMan);
+        assertSame(newMan, result);
+        assertEquals(oldMan.id, newMan.id);
+        assertEquals("Alice Smith", newMan.name);
+        assertEquals(birthDate, newMan.birthDate);
+        assertEquals("Alice", oldMan.name);
+    }
+}
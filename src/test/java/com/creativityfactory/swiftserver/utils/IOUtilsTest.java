@@ -22,6 +22,13 @@ class IOUtilsTest {
         assertEquals(expectedOutput, IOUtils.fromBufferToString(reader));
     }
 
+    @Test
+    public void testFromBufferToStringKeepsLineSeparators() {
+        String input = "{\n  \"name\": \"line\"\r\n}\n" + "x".repeat(20000);
+        BufferedReader reader = new BufferedReader(new StringReader(input));
+        assertEquals(input, IOUtils.fromBufferToString(reader));
+    }
+
     // read file
     @Test
     public void testReadExistingFile() throws IOException {